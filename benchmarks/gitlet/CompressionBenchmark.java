@@ -0,0 +1,128 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/** Shows the trade-off of the compression level of the object store: for
+ *  each level, the bytes the objects take on disk and the time taken to
+ *  add and to check out a set of text files. Run it in an empty directory,
+ *  since it makes and deletes .gitlet and its files there.
+ *  @author Xiaoyi Zhu
+ */
+class CompressionBenchmark {
+
+    /** Usage: java gitlet.CompressionBenchmark [FILES [SIZE]], where FILES
+     *  is the number of files (200 by default) and SIZE is the size of
+     *  each in bytes (64K by default).
+     *  @param args the arguments. */
+    public static void main(String... args) throws IOException {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 16;
+        makeFiles(files, size);
+        run(files, false);
+        System.out.printf("%d files of %d bytes%n", files, size);
+        System.out.printf("%-6s %12s %8s %10s %12s%n", "level", "disk bytes",
+                "ratio", "add ms", "checkout ms");
+        run(files, true);
+    }
+
+    /** Add, commit and check out the FILES files at every level, printing
+     *  the results if REPORT, otherwise only warming up.
+     *  @param files the number of files.
+     *  @param report whether to print. */
+    private static void run(int files, boolean report) throws IOException {
+        long contentBytes = files * new File(fileName(0)).length();
+        for (int level : LEVELS) {
+            deleteRepo();
+            Repo repo = new Repo();
+            Config.set(Config.COMPRESSION, Integer.toString(level));
+            long start = System.nanoTime();
+            for (int i = 0; i < files; i += 1) {
+                repo.add(fileName(i));
+            }
+            long addTime = System.nanoTime() - start;
+            repo.commit("level " + level);
+            start = System.nanoTime();
+            for (int i = 0; i < files; i += 1) {
+                repo.checkout1(fileName(i), repo.getHead());
+            }
+            long checkoutTime = System.nanoTime() - start;
+            long disk = diskBytes();
+            if (report) {
+                System.out.printf("%-6d %12d %8.3f %10.1f %12.1f%n", level,
+                        disk, (double) disk / contentBytes, addTime / 1e6,
+                        checkoutTime / 1e6);
+            }
+        }
+        deleteRepo();
+    }
+
+    /** Make FILES files of SIZE bytes of text looking like source code.
+     *  @param files the number of files.
+     *  @param size the size of each file. */
+    private static void makeFiles(int files, int size) {
+        Random random = new Random(SEED);
+        for (int i = 0; i < files; i += 1) {
+            StringBuilder text = new StringBuilder(size);
+            while (text.length() < size) {
+                text.append("    ".repeat(random.nextInt(4)));
+                int words = 2 + random.nextInt(8);
+                for (int w = 0; w < words; w += 1) {
+                    text.append(WORDS[random.nextInt(WORDS.length)]);
+                    text.append(w + 1 < words ? ' ' : '\n');
+                }
+            }
+            text.setLength(size);
+            Utils.writeContents(new File(fileName(i)), text.toString());
+        }
+    }
+
+    /** Return the name of the Ith file.
+     *  @param i the index of the file.
+     *  @return its name. */
+    private static String fileName(int i) {
+        return "file" + i + ".txt";
+    }
+
+    /** Return the bytes taken by the objects in the store.
+     *  @return the sum of their sizes. */
+    private static long diskBytes() throws IOException {
+        try (Stream<Path> paths = Files.walk(
+                ObjectStore.OBJECTS_DIR.toPath())) {
+            return paths.map(Path::toFile).filter(File::isFile)
+                    .mapToLong(File::length).sum();
+        }
+    }
+
+    /** Delete the .gitlet directory, if there is one, and forget what was
+     *  read from it. */
+    static void deleteRepo() throws IOException {
+        ObjectStore.reset();
+        Path gitlet = new File(".gitlet").toPath();
+        if (!Files.exists(gitlet)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(gitlet)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile)
+                    .forEach(File::delete);
+        }
+    }
+
+    /** The levels measured. */
+    private static final int[] LEVELS = {0, 1, 3, 6, 9};
+    /** The seed of the random text, so every run uses the same files. */
+    private static final long SEED = 61;
+    /** The words the text is made of. */
+    private static final String[] WORDS = {
+        "public", "private", "static", "final", "void", "int", "String",
+        "return", "if", "else", "for", "while", "new", "null", "this",
+        "result", "file", "commit", "blob", "tree", "repo", "=", "==",
+        "+", "(", ")", "{", "}", ";", "i", "+=", "1", "0", "true", "false",
+    };
+
+}
@@ -0,0 +1,100 @@
+package gitlet;
+
+import java.io.IOException;
+import java.util.List;
+
+/** Times the lookups of the message index on COUNT synthetic messages,
+ *  against a scan of all of them, which is the least a find without an
+ *  index costs (gitlet used to read every commit as well), the time to
+ *  build the index, and the time each new message then adds, as a commit
+ *  does, at most and on average. The messages are appended straight to
+ *  the index, so no commits are made. Run it in
+ *  an empty directory, since it makes and deletes .gitlet there.
+ *  @author Xiaoyi Zhu
+ */
+class FindBenchmark {
+
+    /** Usage: java gitlet.FindBenchmark [COUNT], where COUNT is the number
+     *  of messages (1000000 by default).
+     *  @param args the arguments. */
+    public static void main(String... args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        CompressionBenchmark.deleteRepo();
+        new Repo();
+        ObjectStore.flush();
+        for (int i = 0; i < count - TAIL; i += 1) {
+            MessageIndex.append(Utils.sha1("commit " + i), message(i));
+        }
+        long start = System.nanoTime();
+        MessageIndex.build();
+        long build = System.nanoTime() - start;
+        long total = 0;
+        long worst = 0;
+        for (int i = count - TAIL; i < count; i += 1) {
+            start = System.nanoTime();
+            MessageIndex.append(Utils.sha1("commit " + i), message(i));
+            MessageIndex.refresh();
+            long elapsed = System.nanoTime() - start;
+            total += elapsed;
+            worst = Math.max(worst, elapsed);
+        }
+        String last = message(count - 1);
+        System.out.printf("%d messages, index built in %.0f ms, %d more "
+                + "added one at a time in %.3f ms each, %.0f ms at most%n",
+                count - TAIL, build / 1e6, TAIL, total / 1e6 / TAIL,
+                worst / 1e6);
+        System.out.printf("%-24s %8s %12s%n", "query", "found",
+                "ms per call");
+        for (boolean report : new boolean[] {false, true}) {
+            time("exact", report, () -> MessageIndex.exact(last));
+            time("word", report,
+                () -> MessageIndex.word(Integer.toString(count / 2)));
+            time("grep across words", report,
+                () -> MessageIndex.grep("(#" + count / 3 + ")"));
+            time("grep within a word", report,
+                () -> MessageIndex.grep("odule" + count / 3 % 1000));
+        }
+        CompressionBenchmark.deleteRepo();
+    }
+
+    /** Return the message of the Ith commit.
+     *  @param i the number of the commit.
+     *  @return the message. */
+    private static String message(int i) {
+        return "fix " + WORDS[i % WORDS.length] + " (#" + i + ") in module"
+                + i % 1000;
+    }
+
+    /** Print the time of one call of QUERY named NAME, if REPORT.
+     *  @param name the name of the query.
+     *  @param report whether to print it.
+     *  @param query the query. */
+    private static void time(String name, boolean report, Query query) {
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < RUNS; i += 1) {
+            found = query.run().size();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("%-24s %8d %12.4f%n", name, found,
+                    elapsed / 1e6 / RUNS);
+        }
+    }
+
+    /** A lookup of the index. */
+    private interface Query {
+        /** Return the ids found.
+         *  @return the sha-1 of the commits. */
+        List<String> run();
+    }
+
+    /** The words the messages are made of. */
+    private static final String[] WORDS = {"parser", "checkout", "merge",
+        "status", "log", "typo", "build", "index", "tests", "docs"};
+    /** The number of calls timed for each query. */
+    private static final int RUNS = 20;
+    /** The number of messages added after the index is first built. */
+    private static final int TAIL = 100000;
+
+}
@@ -0,0 +1,132 @@
+package gitlet;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+/** Compares the merge-base engine of the commit-graph with the split point
+ *  search gitlet used before it: a breadth-first list of every ancestor of
+ *  the head, each checked by walking the first-parent chain of the other
+ *  branch. The history is a trunk of DEPTH commits with two branches of
+ *  SIDE commits on top, so the base is found below all of them. Run it in
+ *  an empty directory, since it makes and deletes .gitlet there.
+ *  @author Xiaoyi Zhu
+ */
+class MergeBaseBenchmark {
+
+    /** Usage: java gitlet.MergeBaseBenchmark [DEPTH [SIDE]], where DEPTH
+     *  is the length of the trunk (2000 by default) and SIDE the length of
+     *  each branch (200 by default).
+     *  @param args the arguments. */
+    public static void main(String... args) throws IOException {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int side = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        CompressionBenchmark.deleteRepo();
+        Repo repo = new Repo();
+        Commit base = grow(repo.getHead(), depth, "trunk");
+        Commit one = grow(base, side, "one");
+        Commit two = grow(base, side, "two");
+        System.out.printf("trunk of %d commits, branches of %d%n", depth,
+                side);
+        System.out.printf("%-8s %12s%n", "engine", "ms per call");
+        for (boolean report : new boolean[] {false, true}) {
+            long start = System.nanoTime();
+            for (int i = 0; i < RUNS; i += 1) {
+                check(base, legacySplit(one, two));
+            }
+            long legacy = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < RUNS; i += 1) {
+                check(base, CommitGraph.mergeBases(one.getSha(),
+                        two.getSha()).get(0));
+            }
+            long graph = System.nanoTime() - start;
+            if (report) {
+                System.out.printf("%-8s %12.3f%n", "legacy",
+                        legacy / 1e6 / RUNS);
+                System.out.printf("%-8s %12.3f%n", "graph",
+                        graph / 1e6 / RUNS);
+            }
+        }
+        CompressionBenchmark.deleteRepo();
+    }
+
+    /** Return the last of COUNT commits made one on another on top of
+     *  PARENT, each with a message starting with NAME.
+     *  @param parent the first parent.
+     *  @param count the number of commits.
+     *  @param name the start of the messages.
+     *  @return the newest commit. */
+    private static Commit grow(Commit parent, int count, String name) {
+        Commit curr = parent;
+        for (int i = 0; i < count; i += 1) {
+            curr = new Commit(name + " " + i, curr, null, new HashMap<>(),
+                    false, false, "master", new ArrayList<>());
+            ObjectStore.writeCommit(curr);
+        }
+        return curr;
+    }
+
+    /** Stop the benchmark if FOUND is not the sha-1 of EXPECTED.
+     *  @param expected the real base.
+     *  @param found the base found. */
+    private static void check(Commit expected, String found) {
+        if (!expected.getSha().equals(found)) {
+            throw new IllegalStateException("wrong base " + found);
+        }
+    }
+
+    /** Return the split point of HEAD and BRANCH the way Repo found it
+     *  before the commit-graph.
+     *  @param head the current commit.
+     *  @param branch the commit of the given branch.
+     *  @return the sha-1 of the split point, null if there is none. */
+    private static String legacySplit(Commit head, Commit branch) {
+        Queue<String> q = new ArrayDeque<>();
+        LinkedList<String> l = new LinkedList<>();
+        q.add(head.getSha());
+        while (!q.isEmpty()) {
+            String thisQ = q.poll();
+            l.add(thisQ);
+            Commit curr = ObjectStore.readCommit(thisQ);
+            if (curr.getParentId() != null) {
+                q.add(curr.getParentId());
+            }
+            if (curr.getParentId2() != null) {
+                q.add(curr.getParentId2());
+            }
+        }
+        while (!l.isEmpty()) {
+            String currId = l.remove(0);
+            if (legacyIsParent(currId, branch)) {
+                return currId;
+            }
+        }
+        return null;
+    }
+
+    /** Return whether PID is a parent of CHILD, walking its first-parent
+     *  chain, as Repo did before the commit-graph.
+     *  @param pId the possible parent.
+     *  @param child the commit to start from.
+     *  @return true if it is. */
+    private static boolean legacyIsParent(String pId, Commit child) {
+        Commit curr = child;
+        while (curr != null) {
+            if (pId.equals(curr.getParentId())
+                    || pId.equals(curr.getParentId2())) {
+                return true;
+            }
+            curr = ObjectStore.readCommit(curr.getParentId());
+        }
+        return false;
+    }
+
+    /** The number of calls timed for each engine. */
+    private static final int RUNS = 5;
+
+}
@@ -0,0 +1,69 @@
+package gitlet;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/** Runs one gitlet command, or the generator, and on its way out writes
+ *  what the process used into the file named by the property probe.out:
+ *  the milliseconds from the start of main, the peak resident set in KB
+ *  and the bytes read and written, from /proc/self. These are read by the
+ *  process itself from a shutdown hook, which also runs when the command
+ *  calls System.exit, since /proc no longer has them once it has exited.
+ *  The bytes are those of the read and write calls, cached or not, so
+ *  they do not depend on the state of the page cache. Where there is no
+ *  /proc, they are -1.
+ *  @author Xiaoyi Zhu
+ */
+class Probe {
+
+    /** Usage: java -Dprobe.out=FILE gitlet.Probe COMMAND..., where COMMAND
+     *  is a gitlet command, or "generate" and the options of
+     *  RepoGenerator.
+     *  @param args the arguments. */
+    public static void main(String... args) throws IOException {
+        long start = System.nanoTime();
+        Path out = Paths.get(System.getProperty("probe.out"));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.flush();
+            String line = String.format("%.3f %d %d %d%n",
+                    (System.nanoTime() - start) / 1e6,
+                    field("/proc/self/status", "VmHWM:"),
+                    field("/proc/self/io", "rchar:"),
+                    field("/proc/self/io", "wchar:"));
+            try {
+                Files.writeString(out, line);
+            } catch (IOException excp) {
+                return;
+            }
+        }));
+        if (args.length > 0 && args[0].equals("generate")) {
+            RepoGenerator.main(Arrays.copyOfRange(args, 1, args.length));
+        } else {
+            Main.main(args);
+        }
+    }
+
+    /** Return the number after NAME in the file PROC.
+     *  @param proc a file of /proc.
+     *  @param name the name of the field, with its colon.
+     *  @return the number, -1 if it is not there. */
+    private static long field(String proc, String name) {
+        try {
+            List<String> lines = Files.readAllLines(Paths.get(proc));
+            for (String line : lines) {
+                if (line.startsWith(name)) {
+                    return Long.parseLong(line.substring(name.length())
+                            .trim().split("\\s+")[0]);
+                }
+            }
+        } catch (IOException | NumberFormatException excp) {
+            return -1;
+        }
+        return -1;
+    }
+
+}
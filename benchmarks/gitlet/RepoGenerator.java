@@ -0,0 +1,289 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/** Makes a synthetic repository in the working directory, through the
+ *  same commands a user would run, as a batch does: the files are written
+ *  here and the commands run one after another in this process, with the
+ *  repo saved once at the end. The first commit adds FILES files in
+ *  directories of DIR_SIZE, whose sizes are log-normal around a median,
+ *  and the history after it is made on BRANCHES branches in turn: a run
+ *  of MERGE_EVERY commits on one branch, each changing CHANGES files, is
+ *  merged into master, and the branch is then fast-forwarded to master.
+ *  So with the same shape and seed, the same repository is made on every
+ *  run, and two repositories of different sizes differ only in the length
+ *  of their history. Run it in an empty directory.
+ *  @author Xiaoyi Zhu
+ */
+class RepoGenerator {
+
+    /** Usage: java gitlet.RepoGenerator [OPTION VALUE]..., with the
+     *  options of Shape.parse.
+     *  @param args the arguments. */
+    public static void main(String... args) throws IOException {
+        Shape shape = Shape.parse(args);
+        if (shape == null) {
+            System.err.println("Usage: java gitlet.RepoGenerator "
+                    + Shape.USAGE);
+            System.exit(1);
+        }
+        generate(shape);
+    }
+
+    /** Make the repository of the shape SHAPE here.
+     *  @param shape the shape. */
+    static void generate(Shape shape) throws IOException {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            Random random = new Random(shape.seed());
+            run("init");
+            for (int i = 0; i < shape.files(); i += 1) {
+                write(fileName(i), shape, random);
+            }
+            run("add", ".");
+            run("commit", "generated " + shape.files() + " files");
+            for (int b = 0; b < shape.branches(); b += 1) {
+                run("branch", branch(b));
+            }
+            int branch = 0;
+            for (int c = 1; c < shape.commits(); c += 1) {
+                if (shape.branches() == 0) {
+                    change(shape, random, c);
+                    continue;
+                }
+                if (c % shape.mergeEvery() == 1
+                        || shape.mergeEvery() == 1) {
+                    run("checkout", branch(branch));
+                }
+                change(shape, random, c);
+                if (c % shape.mergeEvery() == 0
+                        || c == shape.commits() - 1) {
+                    run("checkout", "master");
+                    run("merge", branch(branch));
+                    run("checkout", branch(branch));
+                    run("merge", "master");
+                    run("checkout", "master");
+                    branch = (branch + 1) % shape.branches();
+                }
+            }
+            Main.save();
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    /** Commit the Cth change, rewriting some of the files of SHAPE with
+     *  RANDOM.
+     *  @param shape the shape.
+     *  @param random the random numbers.
+     *  @param c the number of the commit. */
+    private static void change(Shape shape, Random random, int c)
+        throws IOException {
+        for (int k = 0; k < shape.changes(); k += 1) {
+            String name = fileName(random.nextInt(shape.files()));
+            write(name, shape, random);
+            run("add", name);
+        }
+        run("commit", "change " + c + " of "
+                + WORDS[random.nextInt(WORDS.length)]);
+    }
+
+    /** Run the command ARGS, where a command that stops early only prints
+     *  its message, as it does in a batch.
+     *  @param args the command and its operands. */
+    private static void run(String... args) {
+        try {
+            Main.execute(args);
+        } catch (GitletException excp) {
+            return;
+        }
+    }
+
+    /** Write the file NAME with text of a size drawn for SHAPE by RANDOM.
+     *  @param name the file.
+     *  @param shape the shape.
+     *  @param random the random numbers. */
+    private static void write(String name, Shape shape, Random random)
+        throws IOException {
+        double scale = Math.exp(random.nextGaussian() * shape.spread());
+        int size = (int) Math.min(shape.size() * scale,
+                (double) shape.size() * MAX_RATIO);
+        StringBuilder text = new StringBuilder(size + LINE_SIZE);
+        while (text.length() < size) {
+            text.append("    ".repeat(random.nextInt(4)));
+            int words = 2 + random.nextInt(8);
+            for (int w = 0; w < words; w += 1) {
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+                text.append(w + 1 < words ? ' ' : '\n');
+            }
+        }
+        text.setLength(size);
+        Path path = Paths.get(name);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, text);
+    }
+
+    /** Return the name of the Ith file.
+     *  @param i the number of the file.
+     *  @return its path. */
+    static String fileName(int i) {
+        return "src/d" + i / DIR_SIZE + "/f" + i + ".txt";
+    }
+
+    /** Return the name of the Bth branch.
+     *  @param b the number of the branch.
+     *  @return its name. */
+    static String branch(int b) {
+        return "b" + b;
+    }
+
+    /** The shape of a synthetic repository. */
+    static class Shape {
+
+        /** Return the shape given by ARGS, pairs of an option and its
+         *  value, as in USAGE. The other options are left as they are.
+         *  @param args the options.
+         *  @return the shape, null if ARGS are not valid. */
+        static Shape parse(String... args) {
+            Shape result = new Shape();
+            if (args.length % 2 != 0) {
+                return null;
+            }
+            try {
+                for (int i = 0; i < args.length; i += 2) {
+                    if (!result._options.containsKey(args[i])) {
+                        return null;
+                    }
+                    result._options.put(args[i], args[i + 1]);
+                }
+                if (result.files() < 1 || result.commits() < 1
+                        || result.size() < 0 || result.spread() < 0
+                        || result.branches() < 0 || result.mergeEvery() < 1
+                        || result.changes() < 0) {
+                    return null;
+                }
+            } catch (NumberFormatException excp) {
+                return null;
+            }
+            return result;
+        }
+
+        /** Return the arguments of this shape, as parse takes them.
+         *  @return pairs of an option and its value. */
+        String[] args() {
+            String[] result = new String[_options.size() * 2];
+            int i = 0;
+            for (Map.Entry<String, String> e : _options.entrySet()) {
+                result[i] = e.getKey();
+                result[i + 1] = e.getValue();
+                i += 2;
+            }
+            return result;
+        }
+
+        /** Return this shape, with the number of commits COMMITS.
+         *  @param commits the length of the history.
+         *  @return a new shape. */
+        Shape withCommits(int commits) {
+            Shape result = new Shape();
+            result._options.putAll(_options);
+            result._options.put("-commits", Integer.toString(commits));
+            return result;
+        }
+
+        /** Return the options of this shape.
+         *  @return the value of each option, in the order of USAGE. */
+        Map<String, String> options() {
+            return _options;
+        }
+
+        /** Return the number of files.
+         *  @return the count. */
+        int files() {
+            return Integer.parseInt(_options.get("-files"));
+        }
+
+        /** Return the median size of a file.
+         *  @return the size in bytes. */
+        int size() {
+            return Integer.parseInt(_options.get("-size"));
+        }
+
+        /** Return the spread of the sizes of the files, the standard
+         *  deviation of their logarithm. 0 makes them all the same size.
+         *  @return the spread. */
+        double spread() {
+            return Double.parseDouble(_options.get("-spread"));
+        }
+
+        /** Return the number of commits, the first one included.
+         *  @return the count. */
+        int commits() {
+            return Integer.parseInt(_options.get("-commits"));
+        }
+
+        /** Return the number of branches the commits are made on. 0 makes
+         *  them all on master.
+         *  @return the count. */
+        int branches() {
+            return Integer.parseInt(_options.get("-branches"));
+        }
+
+        /** Return the number of commits made on a branch before it is
+         *  merged into master.
+         *  @return the count. */
+        int mergeEvery() {
+            return Integer.parseInt(_options.get("-merge-every"));
+        }
+
+        /** Return the number of files changed by a commit.
+         *  @return the count. */
+        int changes() {
+            return Integer.parseInt(_options.get("-changes"));
+        }
+
+        /** Return the seed of the random numbers.
+         *  @return the seed. */
+        long seed() {
+            return Long.parseLong(_options.get("-seed"));
+        }
+
+        /** The options and their default values. */
+        static final String USAGE = "[-files 1000] [-size 4096] "
+                + "[-spread 1.0] [-commits 100] [-branches 4] "
+                + "[-merge-every 5] [-changes 3] [-seed 61]";
+
+        /** The value of each option. */
+        private final Map<String, String> _options = new LinkedHashMap<>();
+
+        {
+            String[] defaults = USAGE.replaceAll("[\\[\\]]", "")
+                    .split(" ");
+            for (int i = 0; i < defaults.length; i += 2) {
+                _options.put(defaults[i], defaults[i + 1]);
+            }
+        }
+    }
+
+    /** The number of files in a directory. */
+    private static final int DIR_SIZE = 50;
+    /** The largest size of a file, over the median. */
+    private static final int MAX_RATIO = 64;
+    /** The longest line of a file. */
+    private static final int LINE_SIZE = 128;
+    /** The words the files and the messages are made of. */
+    private static final String[] WORDS = {"int", "return", "if", "else",
+        "for", "while", "String", "static", "void", "class", "new", "null",
+        "true", "false", "=", "+=", "==", "(", ")", "{", "}", ";", "i",
+        "result", "count", "name", "value", "file", "commit", "blob"};
+
+}
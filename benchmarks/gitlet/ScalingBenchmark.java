@@ -0,0 +1,299 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/** Shows how the commands scale with the size of a repository, end to
+ *  end: for each length of history, makes a repository with
+ *  RepoGenerator and runs the commands of a scenario in it, each in its
+ *  own java process as a user would, timing it and recording the peak
+ *  resident set and the bytes it read and wrote (see Probe). The scenario
+ *  is written like the testing .in files: "> " lines are the commands,
+ *  "+ NAME F" copies the file F of the source directory to NAME, and
+ *  "- NAME" deletes NAME; what the commands print is not checked, and
+ *  other lines are skipped. The results are printed, and written to
+ *  OUT.csv and OUT.json, one row a command, so the files of two runs can
+ *  be compared. Run it in an empty directory, since it makes the
+ *  repositories there and deletes them afterward.
+ *  @author Xiaoyi Zhu
+ */
+class ScalingBenchmark {
+
+    /** Usage: java gitlet.ScalingBenchmark [-scenario FILE] [-src DIR]
+     *  [-out OUT] [-sizes N,...] [OPTION VALUE]..., where FILE is the
+     *  scenario (scaling.in by default), DIR holds the files it copies
+     *  (testing/src by default), OUT names the result files (scaling by
+     *  default), the sizes are the numbers of commits of the repositories
+     *  (100,1000 by default) and the other options are those of
+     *  RepoGenerator.Shape.parse.
+     *  @param args the arguments. */
+    public static void main(String... args) throws IOException {
+        String scenario = "scaling.in";
+        String src = "testing/src";
+        String out = "scaling";
+        String sizes = "100,1000";
+        List<String> rest = new ArrayList<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+            case "-scenario":
+                scenario = args[i + 1];
+                break;
+            case "-src":
+                src = args[i + 1];
+                break;
+            case "-out":
+                out = args[i + 1];
+                break;
+            case "-sizes":
+                sizes = args[i + 1];
+                break;
+            default:
+                rest.add(args[i]);
+                rest.add(args[i + 1]);
+            }
+        }
+        RepoGenerator.Shape shape = RepoGenerator.Shape.parse(
+                rest.toArray(new String[0]));
+        if (shape == null || args.length % 2 != 0) {
+            System.err.println("Usage: java gitlet.ScalingBenchmark "
+                    + "[-scenario FILE] [-src DIR] [-out OUT] [-sizes N,...] "
+                    + RepoGenerator.Shape.USAGE);
+            System.exit(1);
+        }
+        List<String> lines = Files.readAllLines(Paths.get(scenario));
+        List<Row> rows = new ArrayList<>();
+        System.out.printf("%8s %6s  %-28s %10s %10s %10s %12s %12s%n",
+                "commits", "files", "command", "wall ms", "run ms",
+                "peak KB", "read", "written");
+        for (String size : sizes.split(",")) {
+            RepoGenerator.Shape each = shape.withCommits(
+                    Integer.parseInt(size.trim()));
+            Path dir = Files.createTempDirectory(Paths.get("."), "repo-");
+            try {
+                List<String> generate = new ArrayList<>();
+                generate.add("generate");
+                generate.addAll(Arrays.asList(each.args()));
+                rows.add(run(each, dir, "generate", generate));
+                run(each, dir, Paths.get(src), lines, rows);
+            } finally {
+                delete(dir);
+            }
+        }
+        write(shape, rows, out);
+    }
+
+    /** Run the commands of the scenario LINES in DIR, a repository of the
+     *  shape SHAPE, adding their rows to ROWS.
+     *  @param shape the shape.
+     *  @param dir the directory of the repository.
+     *  @param src the directory of the files the scenario copies.
+     *  @param lines the scenario.
+     *  @param rows the results. */
+    private static void run(RepoGenerator.Shape shape, Path dir, Path src,
+                            List<String> lines, List<Row> rows)
+        throws IOException {
+        for (String line : lines) {
+            if (line.startsWith("> ")) {
+                String[] command = Batch.split(line.substring(2));
+                if (command == null) {
+                    throw new IllegalArgumentException("bad command: "
+                            + line);
+                }
+                rows.add(run(shape, dir, line.substring(2).trim(),
+                        Arrays.asList(command)));
+            } else if (line.startsWith("+ ")) {
+                String[] words = line.substring(2).trim().split("\\s+");
+                Path to = dir.resolve(words[0]);
+                Files.createDirectories(to.toAbsolutePath().getParent());
+                Files.copy(src.resolve(words[1]), to,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } else if (line.startsWith("- ")) {
+                Files.deleteIfExists(dir.resolve(line.substring(2).trim()));
+            }
+        }
+    }
+
+    /** Run COMMAND in DIR, a repository of the shape SHAPE, in a new java
+     *  process, and print and return its row, named NAME.
+     *  @param shape the shape.
+     *  @param dir the working directory.
+     *  @param name the name of the row.
+     *  @param command the arguments of Probe.
+     *  @return the row. */
+    private static Row run(RepoGenerator.Shape shape, Path dir, String name,
+                           List<String> command) throws IOException {
+        Path probe = Files.createTempFile("probe-", ".txt");
+        List<String> java = new ArrayList<>();
+        java.add(Paths.get(System.getProperty("java.home"), "bin", "java")
+                .toString());
+        java.add("-cp");
+        java.add(System.getProperty("java.class.path"));
+        java.add("-Dprobe.out=" + probe.toAbsolutePath());
+        java.add("gitlet.Probe");
+        java.addAll(command);
+        ProcessBuilder builder = new ProcessBuilder(java)
+                .directory(dir.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT);
+        long start = System.nanoTime();
+        Process process = builder.start();
+        int status;
+        try {
+            status = process.waitFor();
+        } catch (InterruptedException excp) {
+            process.destroy();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        double wall = (System.nanoTime() - start) / 1e6;
+        String[] used = Files.readString(probe).trim().split(" ");
+        Files.delete(probe);
+        Row row = new Row(shape.commits(), shape.files(), name, wall,
+                Double.parseDouble(used[0]), Long.parseLong(used[1]),
+                Long.parseLong(used[2]), Long.parseLong(used[3]), status);
+        System.out.printf("%8d %6d  %-28s %10.1f %10.1f %10d %12d %12d%n",
+                row._commits, row._files, shorten(name), row._wall,
+                row._run, row._peak, row._read, row._written);
+        return row;
+    }
+
+    /** Write ROWS, from repositories of the shape SHAPE, to OUT.csv and
+     *  OUT.json.
+     *  @param shape the shape, whatever the number of commits.
+     *  @param rows the results.
+     *  @param out the name of the files, without extension. */
+    private static void write(RepoGenerator.Shape shape, List<Row> rows,
+                              String out) throws IOException {
+        StringBuilder csv = new StringBuilder("commits,files,command,"
+                + "wall_ms,run_ms,peak_rss_kb,read_bytes,written_bytes,"
+                + "status\n");
+        StringBuilder json = new StringBuilder("{\n  \"shape\": {");
+        String sep = "";
+        for (Map.Entry<String, String> e : shape.options().entrySet()) {
+            if (!e.getKey().equals("-commits")) {
+                json.append(sep).append(quote(e.getKey().substring(1)))
+                        .append(": ").append(e.getValue());
+                sep = ", ";
+            }
+        }
+        json.append("},\n  \"java\": ")
+                .append(quote(System.getProperty("java.version")))
+                .append(",\n  \"rows\": [");
+        sep = "\n";
+        for (Row row : rows) {
+            csv.append(String.format("%d,%d,%s,%.3f,%.3f,%d,%d,%d,%d%n",
+                    row._commits, row._files, "\""
+                    + row._name.replace("\"", "\"\"") + "\"", row._wall,
+                    row._run, row._peak, row._read, row._written,
+                    row._status));
+            json.append(sep).append(String.format("    {\"commits\": %d, "
+                    + "\"files\": %d, \"command\": %s, \"wall_ms\": %.3f, "
+                    + "\"run_ms\": %.3f, \"peak_rss_kb\": %d, "
+                    + "\"read_bytes\": %d, \"written_bytes\": %d, "
+                    + "\"status\": %d}", row._commits, row._files,
+                    quote(row._name), row._wall, row._run, row._peak,
+                    row._read, row._written, row._status));
+            sep = ",\n";
+        }
+        json.append("\n  ]\n}\n");
+        Files.writeString(Paths.get(out + ".csv"), csv);
+        Files.writeString(Paths.get(out + ".json"), json);
+    }
+
+    /** Return S as a JSON string.
+     *  @param s the string.
+     *  @return S quoted, with its quotes, backslashes and control
+     *  characters escaped. */
+    private static String quote(String s) {
+        StringBuilder result = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < ' ') {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    /** Return NAME, cut to the width of its column.
+     *  @param name a command.
+     *  @return the NAME or its start. */
+    private static String shorten(String name) {
+        return name.length() <= WIDTH ? name
+                : name.substring(0, WIDTH - 3) + "...";
+    }
+
+    /** Delete DIR and everything in it.
+     *  @param dir the directory. */
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile)
+                    .forEach(File::delete);
+        }
+    }
+
+    /** The results of one command. */
+    private static class Row {
+
+        /** The row of the command NAME in a repository of COMMITS commits
+         *  and FILES files, which took WALL ms, RUN of them in main, used
+         *  PEAK KB at most, read READ bytes, wrote WRITTEN bytes and exited
+         *  with STATUS.
+         *  @param commits the number of commits.
+         *  @param files the number of files.
+         *  @param name the command.
+         *  @param wall the time of the process.
+         *  @param run the time of main.
+         *  @param peak the peak resident set.
+         *  @param read the bytes read.
+         *  @param written the bytes written.
+         *  @param status the exit status. */
+        Row(int commits, int files, String name, double wall, double run,
+            long peak, long read, long written, int status) {
+            _commits = commits;
+            _files = files;
+            _name = name;
+            _wall = wall;
+            _run = run;
+            _peak = peak;
+            _read = read;
+            _written = written;
+            _status = status;
+        }
+
+        /** The number of commits of the repository. */
+        private final int _commits;
+        /** The number of files of the repository. */
+        private final int _files;
+        /** The command. */
+        private final String _name;
+        /** The time from the start of the process to its end, in ms. */
+        private final double _wall;
+        /** The time from the start of main to the exit, in ms. */
+        private final double _run;
+        /** The peak resident set, in KB. */
+        private final long _peak;
+        /** The bytes read. */
+        private final long _read;
+        /** The bytes written. */
+        private final long _written;
+        /** The exit status. */
+        private final int _status;
+    }
+
+    /** The width of the column of the commands. */
+    private static final int WIDTH = 28;
+
+}
@@ -0,0 +1,67 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Making a Blobs of a file, which hashes it, and hashing it alone, for
+ *  files of fileSize bytes.
+ *  @author Xiaoyi Zhu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BlobsBench {
+
+    /** The size of the file in bytes. */
+    @Param({"1024", "65536", "4194304"})
+    public int fileSize;
+
+    /** Make the file. */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Fixture.clean();
+        Fixture.makeFiles(1, fileSize);
+        _file = new File(Fixture.fileName(0));
+    }
+
+    /** Delete the file. */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixture.clean();
+    }
+
+    /** Make a Blobs of the file.
+     *  @return the blob. */
+    @Benchmark
+    public Blobs construct() {
+        return new Blobs(_file.getPath());
+    }
+
+    /** Hash the file.
+     *  @return its blob id. */
+    @Benchmark
+    public String hash() {
+        return Blobs.hash(_file);
+    }
+
+    /** The file. */
+    private File _file;
+
+}
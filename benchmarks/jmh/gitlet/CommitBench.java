@@ -0,0 +1,83 @@
+package gitlet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Making a commit on a head of fileCount files, and listing the files of
+ *  the head. A commit computes its sha-1 once, when it is made, so that is
+ *  what getSha costs, and it shares every tree but the changed ones with
+ *  its parent, which replaced copying the map of all the files of the
+ *  parent (copyAllFiles).
+ *  @author Xiaoyi Zhu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommitBench {
+
+    /** The number of files in the head. */
+    @Param({"100", "1000", "10000"})
+    public int fileCount;
+
+    /** The size of each file in bytes. */
+    @Param({"1024"})
+    public int fileSize;
+
+    /** The number of commits below the head. */
+    @Param({"10"})
+    public int depth;
+
+    /** Make the repo, and stage a change of one file. */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        _head = Fixture.repo(fileCount, fileSize, depth).getHead();
+        _staged.put(Fixture.fileName(fileCount / 2),
+                _head.getBlobId(Fixture.fileName(0)));
+    }
+
+    /** Delete the repo. */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixture.clean();
+    }
+
+    /** Make a commit changing one file of the head, without writing it.
+     *  @return its sha-1. */
+    @Benchmark
+    public String commit() {
+        return new Commit("bench", _head, null, _staged, false, false,
+                "master", new ArrayList<>()).getSha();
+    }
+
+    /** List the files of the head with their blob ids.
+     *  @return the files. */
+    @Benchmark
+    public Map<String, String> fileMap() {
+        return _head.getFileMap();
+    }
+
+    /** The head commit. */
+    private Commit _head;
+    /** The staged change. */
+    private final HashMap<String, String> _staged = new HashMap<>();
+
+}
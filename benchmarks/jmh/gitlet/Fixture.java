@@ -0,0 +1,112 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/** The repositories the JMH benchmarks run on. They are made in the
+ *  working directory of the benchmark, which must be a scratch directory,
+ *  since .gitlet and DIR there are deleted first. JMH runs each benchmark
+ *  and each set of parameters in a new JVM, one after another, so the
+ *  caches of gitlet never see two of them.
+ *  @author Xiaoyi Zhu
+ */
+final class Fixture {
+
+    /** The directory holding the files of a fixture. */
+    static final String DIR = "files/";
+
+    /** Return a new repo whose head holds FILES files of SIZE bytes, made
+     *  by DEPTH commits after the first, each changing one of the files.
+     *  @param files the number of files.
+     *  @param size the size of each file.
+     *  @param depth the number of commits after the one adding them.
+     *  @return the repo. */
+    static Repo repo(int files, int size, int depth) throws IOException {
+        clean();
+        Repo repo = new Repo();
+        makeFiles(files, size);
+        for (int i = 0; i < files; i += 1) {
+            repo.add(fileName(i));
+        }
+        repo.commit("add " + files + " files");
+        for (int d = 0; d < depth; d += 1) {
+            String name = fileName(d % files);
+            Utils.writeContents(new File(name), "version " + d + "\n");
+            repo.add(name);
+            repo.commit("change " + name);
+        }
+        return repo;
+    }
+
+    /** Return the last of COUNT commits made one on another on top of
+     *  PARENT, without files, each with a message starting with NAME.
+     *  @param parent the first parent.
+     *  @param count the number of commits.
+     *  @param name the start of the messages.
+     *  @return the newest commit. */
+    static Commit grow(Commit parent, int count, String name) {
+        Commit curr = parent;
+        for (int i = 0; i < count; i += 1) {
+            curr = new Commit(name + " " + i, curr, null, new HashMap<>(),
+                    false, false, "master", new ArrayList<>());
+            ObjectStore.writeCommit(curr);
+        }
+        return curr;
+    }
+
+    /** Make FILES files of SIZE bytes of text in DIR.
+     *  @param files the number of files.
+     *  @param size the size of each file. */
+    static void makeFiles(int files, int size) {
+        new File(DIR).mkdirs();
+        Random random = new Random(SEED);
+        for (int i = 0; i < files; i += 1) {
+            StringBuilder text = new StringBuilder(size + 16);
+            while (text.length() < size) {
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+                text.append(random.nextInt(8) == 0 ? '\n' : ' ');
+            }
+            text.setLength(size);
+            Utils.writeContents(new File(fileName(i)), text.toString());
+        }
+    }
+
+    /** Return the name of the Ith file.
+     *  @param i the index of the file.
+     *  @return its path. */
+    static String fileName(int i) {
+        return DIR + "file" + i + ".txt";
+    }
+
+    /** Delete .gitlet and DIR, if they are there, and forget what was read
+     *  from .gitlet. */
+    static void clean() throws IOException {
+        ObjectStore.reset();
+        for (String name : new String[] {".gitlet", DIR}) {
+            Path path = new File(name).toPath();
+            if (!Files.exists(path)) {
+                continue;
+            }
+            try (Stream<Path> paths = Files.walk(path)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile)
+                        .forEach(File::delete);
+            }
+        }
+    }
+
+    /** The seed of the random text, so every run uses the same files. */
+    private static final long SEED = 61;
+    /** The words the text is made of. */
+    private static final String[] WORDS = {
+        "public", "static", "void", "int", "String", "return", "if", "for",
+        "new", "null", "this", "commit", "blob", "tree", "repo", "{", "}",
+    };
+
+}
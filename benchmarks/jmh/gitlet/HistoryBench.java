@@ -0,0 +1,90 @@
+package gitlet;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Queries of a history of depth commits with two branches of 100 commits
+ *  on top: finding a commit from a shortened id, and the split point of the
+ *  branches, which CommitGraph.mergeBases finds where Repo used to search
+ *  breadth first (bfsFindSplit).
+ *  @author Xiaoyi Zhu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryBench {
+
+    /** The number of commits below the branches. */
+    @Param({"100", "1000", "10000"})
+    public int depth;
+
+    /** The number of files in each commit. */
+    @Param({"10"})
+    public int fileCount;
+
+    /** The size of each file in bytes. */
+    @Param({"1024"})
+    public int fileSize;
+
+    /** Make the history. */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        _repo = Fixture.repo(fileCount, fileSize, 0);
+        Commit base = Fixture.grow(_repo.getHead(), depth, "trunk");
+        _one = Fixture.grow(base, SIDE, "one").getSha();
+        _two = Fixture.grow(base, SIDE, "two").getSha();
+        _prefix = base.getSha().substring(0, PREFIX);
+    }
+
+    /** Delete the repo. */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixture.clean();
+    }
+
+    /** Find a commit from its shortened id.
+     *  @return the commit. */
+    @Benchmark
+    public Commit getCommitFromId() {
+        return _repo.getCommitFromId(_prefix);
+    }
+
+    /** Find the split point of the two branches.
+     *  @return its id. */
+    @Benchmark
+    public List<String> findSplit() {
+        return CommitGraph.mergeBases(_one, _two);
+    }
+
+    /** The length of each branch. */
+    private static final int SIDE = 100;
+    /** The length of the shortened id. */
+    private static final int PREFIX = 8;
+
+    /** The repo. */
+    private Repo _repo;
+    /** The id of the head of one branch. */
+    private String _one;
+    /** The id of the head of the other branch. */
+    private String _two;
+    /** The shortened id of the split point. */
+    private String _prefix;
+
+}
@@ -0,0 +1,103 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Writing and reading back the repo, which every command does once, with
+ *  fileCount files staged, and the root tree of a commit of fileCount
+ *  files, in the format of Codec, and for comparison with the Java
+ *  serialization gitlet used before it.
+ *  @author Xiaoyi Zhu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializeBench {
+
+    /** The number of files. */
+    @Param({"100", "1000", "10000"})
+    public int fileCount;
+
+    /** The size of each file in bytes. */
+    @Param({"1024"})
+    public int fileSize;
+
+    /** The number of commits below the head. */
+    @Param({"1"})
+    public int depth;
+
+    /** Make the repo, and stage a change of every file. */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        _repo = Fixture.repo(fileCount, fileSize, depth);
+        _tree = ObjectStore.readTree(_repo.getHead().getTreeId());
+        for (int i = 0; i < fileCount; i += 1) {
+            Utils.writeContents(new File(Fixture.fileName(i)), "staged\n");
+            _repo.add(Fixture.fileName(i));
+        }
+    }
+
+    /** Delete the repo. */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixture.clean();
+    }
+
+    /** Write the repo and read it back.
+     *  @return the repo read. */
+    @Benchmark
+    public Repo repo() {
+        Utils.writeContents(FILE, _repo.encode());
+        return Codec.decode(Utils.readContents(FILE), Repo.class);
+    }
+
+    /** Write the tree and read it back.
+     *  @return the tree read. */
+    @Benchmark
+    public Tree tree() {
+        Utils.writeContents(FILE, _tree.encode());
+        return Codec.decode(Utils.readContents(FILE), Tree.class);
+    }
+
+    /** Write the repo and read it back by Java serialization.
+     *  @return the repo read. */
+    @Benchmark
+    public Repo repoSerialized() {
+        Utils.writeObject(FILE, _repo);
+        return Utils.readObject(FILE, Repo.class);
+    }
+
+    /** Write the tree and read it back by Java serialization.
+     *  @return the tree read. */
+    @Benchmark
+    public Tree treeSerialized() {
+        Utils.writeObject(FILE, _tree);
+        return Utils.readObject(FILE, Tree.class);
+    }
+
+    /** The file written. */
+    private static final File FILE = new File(".gitlet/bench");
+
+    /** The repo. */
+    private Repo _repo;
+    /** The root tree of the head. */
+    private Tree _tree;
+
+}
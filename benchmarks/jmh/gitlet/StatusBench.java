@@ -0,0 +1,75 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Finding the modified and untracked files of a working directory of
+ *  fileCount files (Repo.updateList), one in a hundred of them changed
+ *  since the head. After the first call the unchanged files come from the
+ *  stat cache (Index), as they do for every command but the first.
+ *  @author Xiaoyi Zhu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatusBench {
+
+    /** The number of files. */
+    @Param({"100", "1000", "10000"})
+    public int fileCount;
+
+    /** The size of each file in bytes. */
+    @Param({"1024", "65536"})
+    public int fileSize;
+
+    /** The number of commits below the head. */
+    @Param({"10"})
+    public int depth;
+
+    /** Make the repo, and change some of its files. */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        _repo = Fixture.repo(fileCount, fileSize, depth);
+        for (int i = 0; i < fileCount; i += CHANGED) {
+            Utils.writeContents(new File(Fixture.fileName(i)), "changed\n");
+        }
+    }
+
+    /** Delete the repo. */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixture.clean();
+    }
+
+    /** Find the changes of the working directory.
+     *  @return the repo. */
+    @Benchmark
+    public Repo updateList() {
+        _repo.updateList();
+        return _repo;
+    }
+
+    /** One file in CHANGED is changed. */
+    private static final int CHANGED = 100;
+
+    /** The repo. */
+    private Repo _repo;
+
+}
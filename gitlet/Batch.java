@@ -0,0 +1,136 @@
+package gitlet;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Batches of commands, run one after another in one process against the
+ *  same repo, which is read once and saved once at the end. A script has
+ *  one command a line, without "java gitlet.Main", its operands split at
+ *  blanks unless quoted in double quotes like the "> " lines of the
+ *  testing .in files, with \" and \\ inside the quotes. Blank lines and
+ *  lines starting with '#' are skipped, and a "checkpoint" line saves the
+ *  repo there. A command that stops early prints its message and leaves
+ *  the repo as it was before it, the same as when it runs by itself, and
+ *  the batch goes on. A command that fails stops the batch without saving
+ *  anything since the last checkpoint.
+ *  The script is "batch -e SCRIPT", or read from FILE for "batch FILE",
+ *  or from stdin for "batch", before the command is run or sent to the
+ *  daemon.
+ *  @author Xiaoyi Zhu
+ */
+class Batch {
+
+    /** Return the batch command ARGS with its script read in.
+     * @param args "batch", "batch FILE" or "batch -e SCRIPT".
+     * @return "batch -e SCRIPT", or ARGS if the script cannot be read. */
+    static String[] inline(String[] args) {
+        if (args.length > 2 || (args.length == 2 && args[1].equals("-e"))) {
+            return args;
+        }
+        try {
+            byte[] script = args.length == 1 ? System.in.readAllBytes()
+                    : Files.readAllBytes(Paths.get(args[1]));
+            return new String[] {"batch", "-e",
+                new String(script, StandardCharsets.UTF_8)};
+        } catch (NoSuchFileException excp) {
+            return args;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Run the script of the batch command ARGS.
+     * @param args "batch -e SCRIPT". */
+    static void run(String[] args) {
+        if (args.length != 3 || !args[1].equals("-e")) {
+            if (args.length == 2 && !args[1].equals("-e")) {
+                Utils.message("File does not exist.");
+            } else {
+                Utils.message("Incorrect operands.");
+            }
+            throw new GitletException();
+        }
+        boolean changed = false;
+        for (String line : args[2].split("\n")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.equals("checkpoint")) {
+                if (changed) {
+                    Main.save();
+                }
+                changed = false;
+                continue;
+            }
+            String[] command = split(line);
+            if (command == null) {
+                Utils.message("Incorrect operands.");
+                continue;
+            }
+            byte[] before = Main.snapshot();
+            int pending = ObjectStore.pending().size();
+            try {
+                changed |= Main.execute(command);
+            } catch (GitletException excp) {
+                Main.restore(before);
+                ObjectStore.discard(pending);
+            }
+        }
+        if (changed) {
+            Main.save();
+        }
+    }
+
+    /** Return the words of the command LINE.
+     * @param line a line of a script.
+     * @return the command and its operands, null if a quote is not
+     * closed. */
+    static String[] split(String line) {
+        List<String> result = new ArrayList<>();
+        StringBuilder word = null;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i += 1) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    quoted = false;
+                } else if (c == '\\' && i + 1 < line.length()
+                        && (line.charAt(i + 1) == '"'
+                        || line.charAt(i + 1) == '\\')) {
+                    i += 1;
+                    word.append(line.charAt(i));
+                } else {
+                    word.append(c);
+                }
+            } else if (Character.isWhitespace(c)) {
+                if (word != null) {
+                    result.add(word.toString());
+                    word = null;
+                }
+            } else {
+                if (word == null) {
+                    word = new StringBuilder();
+                }
+                if (c == '"') {
+                    quoted = true;
+                } else {
+                    word.append(c);
+                }
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        if (word != null) {
+            result.add(word.toString());
+        }
+        return result.toArray(new String[0]);
+    }
+
+}
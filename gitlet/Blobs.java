@@ -1,33 +1,123 @@
 package gitlet;
 
 import java.io.File;
-import java.io.Serializable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 
 /** Blob class for Gitlet, the object to hold information of the files.
+ *  A blob is keyed by the sha-1 of its content only, so the same content is
+ *  stored once no matter how many files or commits refer to it. A Blobs is
+ *  only a handle, its sha-1 and size, and two of them are equal when their
+ *  sha-1 are. The content is never held while hashing or storing a file;
+ *  it is read from the store when diff or merge asks for it, through a
+ *  cache of the contents read last, bounded in bytes, and is never kept
+ *  as a String as well. Checkout streams it out of the store instead.
  *  @author Xiaoyi Zhu
  */
-public class Blobs implements Serializable {
+public class Blobs {
 
-    /** Initializes a Blobs with the given file name.
+    /** Initializes a Blobs with the given file name, hashing the file in
+     * fixed-size chunks.
      * @param name the fine name. */
     Blobs(String name) {
         File newFile = new File(name);
-        _fileName = name;
-        _content = Utils.readContents(newFile);
-        _contentString = Utils.readContentsAsString(newFile);
-        String temp = "";
-        temp = _fileName + _contentString;
-        _sha1 = Utils.sha1(temp);
+        _size = newFile.length();
+        _sha1 = hash(newFile);
     }
 
-    /**Return content in String. */
-    public String getContentString() {
-        return _contentString;
+    /** Initializes an empty Blobs, filled in by stored(). */
+    private Blobs() {
     }
 
-    /**Return content in byte[]. */
+    /** Return the Blobs of the object ID in the store, its size is read
+     * when it is asked for.
+     * @param id the sha-1 of the blob.
+     * @return the blob. */
+    static Blobs stored(String id) {
+        Blobs b = new Blobs();
+        b._sha1 = id;
+        b._size = -1;
+        return b;
+    }
+
+    /** Return the sha-1 of the content of FILE as a blob. The file is read
+     * through its channel in chunks of at most CHUNK_SIZE bytes, small files
+     * into a buffer and large ones through a mapped window, so the memory
+     * used does not depend on the size of the file.
+     * @param file the file to be hashed.
+     * @return the sha-1 String. */
+    static String hash(File file) {
+        try (FileChannel in = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            long size = in.size();
+            Trace.hashed(size);
+            MessageDigest md = Utils.sha1Digest();
+            Utils.update(md, "blob " + size + "\0");
+            if (size <= BUFFER_SIZE) {
+                ByteBuffer buf = ByteBuffer.allocate((int) size);
+                while (buf.hasRemaining()) {
+                    if (in.read(buf) < 0) {
+                        break;
+                    }
+                }
+                buf.flip();
+                md.update(buf);
+            } else {
+                for (long pos = 0; pos < size; pos += CHUNK_SIZE) {
+                    MappedByteBuffer window = in.map(
+                            FileChannel.MapMode.READ_ONLY, pos,
+                            Math.min(CHUNK_SIZE, size - pos));
+                    md.update(window);
+                }
+            }
+            return Utils.hexDigest(md);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the sha-1 of CONTENT as a blob, as hash(File) does.
+     * @param content the content.
+     * @return the sha-1 String. */
+    static String hash(byte[] content) {
+        Trace.hashed(content.length);
+        MessageDigest md = Utils.sha1Digest();
+        Utils.update(md, "blob " + content.length + "\0");
+        md.update(content);
+        return Utils.hexDigest(md);
+    }
+
+    /**Return content in byte[], read from the store unless it is in the
+     * cache. The array is shared, so it must not be changed. Diff reads
+     * the blobs of diff and merge through it, so the versions a merge
+     * compares, or a daemon diffs again, are read once. */
     public byte[] getContent() {
-        return _content;
+        synchronized (CONTENTS) {
+            byte[] content = CONTENTS.get(_sha1);
+            if (content != null) {
+                return content;
+            }
+        }
+        byte[] content = ObjectStore.readBytes(_sha1);
+        if (content.length <= CACHE_SIZE / 4) {
+            synchronized (CONTENTS) {
+                if (CONTENTS.put(_sha1, content) == null) {
+                    _cacheBytes += content.length;
+                }
+                Iterator<byte[]> eldest = CONTENTS.values().iterator();
+                while (_cacheBytes > CACHE_SIZE) {
+                    _cacheBytes -= eldest.next().length;
+                    eldest.remove();
+                }
+            }
+        }
+        return content;
     }
 
     /** Return sha-1. */
@@ -35,13 +125,40 @@ public class Blobs implements Serializable {
         return _sha1;
     }
 
+    /** Return the size of the content. */
+    public long getSize() {
+        if (_size < 0) {
+            _size = ObjectStore.size(_sha1);
+        }
+        return _size;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Blobs && ((Blobs) obj)._sha1.equals(_sha1);
+    }
+
+    @Override
+    public int hashCode() {
+        return _sha1.hashCode();
+    }
+
+    /** Files up to this size are read into a buffer rather than mapped. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** The size of the mapped windows used for large files. */
+    static final long CHUNK_SIZE = 1 << 23;
+
+    /** The bytes of content kept in CONTENTS at most. */
+    private static final long CACHE_SIZE = 1 << 25;
+    /** The contents read last, saved by sha-1, least recently used
+     * first. */
+    private static final LinkedHashMap<String, byte[]> CONTENTS =
+            new LinkedHashMap<>(16, 0.75f, true);
+    /** The bytes held in CONTENTS. */
+    private static long _cacheBytes;
 
-    /** The String of the file name. */
-    private String _fileName;
-    /** The byte array to hold content. */
-    private byte[] _content;
-    /** The String to hold content. */
-    private String _contentString;
+    /** The size of the content, -1 until it is read from the store. */
+    private long _size;
     /** The String to hold hashcode of the whole blob. */
     private String _sha1;
 
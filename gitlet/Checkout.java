@@ -0,0 +1,162 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** The checkout engine, which moves the working directory from the files
+ *  of one commit to those of another. The two trees are diffed by blob id
+ *  (see TreeDiff), and only the paths that differ are written or deleted.
+ *  A path holding the same blob in both is left alone, unless the Index
+ *  shows that the working copy was changed, so a checkout still puts back
+ *  every file of the target. The files are written on a bounded pool of
+ *  threads, each streamed out of the store (see ObjectStore.copyTo).
+ *  @author Xiaoyi Zhu
+ */
+class Checkout {
+
+    /** Make the working directory hold the files of the tree TREEID, the
+     * changes from the tree checked out now being CHANGES.
+     * @param changes the diff of the current and the new tree.
+     * @param treeId the id of the new tree. */
+    static void run(List<TreeDiff.Change> changes, String treeId) {
+        HashSet<String> changed = new HashSet<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        List<String[]> batch = new ArrayList<>();
+        for (TreeDiff.Change change : changes) {
+            changed.add(change.path());
+            if (change.id(1) == null) {
+                delete(change.path());
+            } else {
+                batch = add(tasks, batch, change.path(), change.id(1), true);
+            }
+        }
+        TreeMap<String, String> files = new TreeMap<>();
+        Tree.flatten(treeId, "", files);
+        for (Map.Entry<String, String> entry : files.entrySet()) {
+            if (!changed.contains(entry.getKey())) {
+                batch = add(tasks, batch, entry.getKey(), entry.getValue(),
+                        false);
+            }
+        }
+        tasks.add(task(batch));
+        runAll(tasks);
+    }
+
+    /** Put the file at PATH with the blob ID into BATCH, adding the batch to
+     * TASKS once it is full.
+     * @param tasks the tasks.
+     * @param batch the files of the next task.
+     * @param path the path of the file.
+     * @param id the sha-1 of its blob.
+     * @param changed whether the blob changed, otherwise the file is only
+     * written if the working copy is not the same.
+     * @return the batch to fill next. */
+    private static List<String[]> add(List<Callable<Void>> tasks,
+                                      List<String[]> batch, String path,
+                                      String id, boolean changed) {
+        batch.add(new String[] {path, id, changed ? CHANGED : null});
+        if (batch.size() < BATCH) {
+            return batch;
+        }
+        tasks.add(task(batch));
+        return new ArrayList<>();
+    }
+
+    /** Return the task checking out the files of BATCH.
+     * @param batch path, blob id and whether it changed for each file.
+     * @return the task. */
+    private static Callable<Void> task(List<String[]> batch) {
+        return () -> {
+            for (String[] file : batch) {
+                if (file[2] != null
+                        || !file[1].equals(Index.blobId(file[0]))) {
+                    write(file[0], file[1]);
+                }
+            }
+            return null;
+        };
+    }
+
+    /** Write the blob ID into the file at PATH, making its directories.
+     * @param path the path of the file.
+     * @param id the sha-1 of the blob. */
+    static void write(String path, String id) {
+        File f = new File(path);
+        if (f.getParentFile() != null) {
+            f.getParentFile().mkdirs();
+        }
+        ObjectStore.copyTo(id, f);
+        Index.record(path, id);
+    }
+
+    /** Delete the file at PATH, and then its directories that are left
+     * empty.
+     * @param path the path of the file. */
+    private static void delete(String path) {
+        File f = new File(path);
+        f.delete();
+        for (File dir = f.getParentFile(); dir != null
+                && dir.delete(); dir = dir.getParentFile()) {
+            continue;
+        }
+    }
+
+    /** Run TASKS on a pool of at most MAX_THREADS threads and wait for all
+     * of them.
+     * @param tasks the tasks. */
+    private static void runAll(List<Callable<Void>> tasks) {
+        if (tasks.size() <= 1) {
+            for (Callable<Void> task : tasks) {
+                call(task);
+            }
+            return;
+        }
+        int threads = Math.min(tasks.size(), Math.min(MAX_THREADS,
+                Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Void> done : pool.invokeAll(tasks)) {
+                done.get();
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException(excp.getMessage());
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw new IllegalArgumentException(excp.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Run TASK in this thread.
+     * @param task the task. */
+    private static void call(Callable<Void> task) {
+        try {
+            task.call();
+        } catch (RuntimeException excp) {
+            throw excp;
+        } catch (Exception excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** The mark of a file whose blob changed in a batch. */
+    private static final String CHANGED = "changed";
+    /** The number of files checked out by one task. */
+    private static final int BATCH = 256;
+    /** The most threads writing files at once. */
+    private static final int MAX_THREADS = 8;
+
+}
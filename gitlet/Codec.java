@@ -0,0 +1,298 @@
+package gitlet;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** The binary format of the commits, the trees and the repo. Each is
+ *  written as a header of two magic bytes, its kind and the version of its
+ *  layout, then its fields: counts and lengths as varints, numbers that
+ *  may be negative as zigzag varints, strings as their length and their
+ *  UTF-8 bytes, and ids as their 20 raw bytes. A reader takes any version
+ *  up to its own, so a field added later goes at the end of a new version.
+ *  Objects written by Java serialization, which gitlet used before, are
+ *  still read, since they start with other magic bytes (see Legacy);
+ *  "migrate" writes them again in this format, and makes a repo of the
+ *  oldest layout, which held every commit, again as well.
+ *  @author Xiaoyi Zhu
+ */
+class Codec {
+
+    /** The kind of a commit. */
+    static final byte COMMIT = 'C';
+    /** The kind of a tree. */
+    static final byte TREE = 'T';
+    /** The kind of the repo. */
+    static final byte REPO = 'R';
+
+    /** The version of the layouts written. */
+    static final int VERSION = 1;
+
+    /** Return the object of the class EXPECTEDCLASS held in DATA, in this
+     * format or in that of Java serialization.
+     * @param data the bytes of the object.
+     * @param expectedClass the class of the object.
+     * @param <T> the type of the object.
+     * @return the object. */
+    static <T extends Serializable> T decode(byte[] data,
+                                             Class<T> expectedClass) {
+        if (isLegacy(data)) {
+            try {
+                return expectedClass.cast(Legacy.read(data));
+            } catch (ClassCastException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+        Reader in = new Reader(data);
+        byte kind = data.length > 2 ? data[2] : 0;
+        int version = in.header(kind);
+        Object result;
+        switch (kind) {
+        case COMMIT:
+            result = Commit.decode(in, version);
+            break;
+        case TREE:
+            result = Tree.decode(in, version);
+            break;
+        case REPO:
+            result = Repo.decode(in, version);
+            break;
+        default:
+            throw new IllegalArgumentException("unknown object kind "
+                    + kind);
+        }
+        try {
+            return expectedClass.cast(result);
+        } catch (ClassCastException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return whether DATA was written by Java serialization.
+     * @param data the bytes of an object, or at least its first two.
+     * @return true if it starts with the magic of Java serialization. */
+    static boolean isLegacy(byte[] data) {
+        return data.length >= 2 && data[0] == (byte) 0xac
+                && data[1] == (byte) 0xed;
+    }
+
+    /** An object written in this format. */
+    interface Encodable extends Serializable {
+        /** Return the bytes of this object.
+         * @return the header and the fields. */
+        byte[] encode();
+    }
+
+    /** A buffer the fields of an object are written into. Its varints are
+     * the ones of Delta as well. */
+    static class Writer {
+
+        /** A buffer of fields with no header, for bytes that are not an
+         * object, such as a delta. */
+        Writer() {
+            _buf = new byte[INITIAL_SIZE];
+        }
+
+        /** A buffer starting with the header of an object of KIND.
+         * @param kind COMMIT, TREE or REPO. */
+        Writer(byte kind) {
+            _buf = new byte[INITIAL_SIZE];
+            _buf[0] = MAGIC0;
+            _buf[1] = MAGIC1;
+            _buf[2] = kind;
+            _length = 3;
+            varint(VERSION);
+        }
+
+        /** Write the byte B.
+         * @param b the byte. */
+        void write(int b) {
+            room(1);
+            _buf[_length] = (byte) b;
+            _length += 1;
+        }
+
+        /** Write the LEN bytes of B from OFF as they are.
+         * @param b the bytes.
+         * @param off the first one.
+         * @param len how many. */
+        void write(byte[] b, int off, int len) {
+            room(len);
+            System.arraycopy(b, off, _buf, _length, len);
+            _length += len;
+        }
+
+        /** Write N as a varint: seven bits a byte, lowest first, the high
+         * bit set on all bytes but the last.
+         * @param n a number, taken as unsigned. */
+        void varint(long n) {
+            room(MAX_VARINT);
+            while ((n & ~0x7fL) != 0) {
+                _buf[_length] = (byte) ((n & 0x7f) | 0x80);
+                _length += 1;
+                n >>>= 7;
+            }
+            _buf[_length] = (byte) n;
+            _length += 1;
+        }
+
+        /** Write N as a zigzag varint, so small negative numbers are short
+         * as well.
+         * @param n a number. */
+        void signed(long n) {
+            varint((n << 1) ^ (n >> 63));
+        }
+
+        /** Write S as its length and its UTF-8 bytes.
+         * @param s the string. */
+        void string(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        /** Write the sha-1 ID as its 20 bytes.
+         * @param id the hexadecimal sha-1. */
+        void id(String id) {
+            write(Utils.fromHex(id), 0, ID_SIZE);
+        }
+
+        /** Return the bytes written.
+         * @return a copy of them. */
+        byte[] toByteArray() {
+            return Arrays.copyOf(_buf, _length);
+        }
+
+        /** Make room for N more bytes.
+         * @param n the number of bytes. */
+        private void room(int n) {
+            if (_length + n > _buf.length) {
+                _buf = Arrays.copyOf(_buf, Math.max(_buf.length * 2,
+                        _length + n));
+            }
+        }
+
+        /** The bytes. */
+        private byte[] _buf;
+        /** The number of bytes written. */
+        private int _length;
+    }
+
+    /** The fields of an object, read in the order they were written. */
+    static class Reader {
+
+        /** A reader of the object in DATA, or of bytes with no header if
+         * header() is not called.
+         * @param data the bytes of the object. */
+        Reader(byte[] data) {
+            _data = data;
+        }
+
+        /** Read the header, which must be of an object of KIND.
+         * @param kind the kind of the object.
+         * @return the version of its layout. */
+        int header(byte kind) {
+            if (_data.length < 4 || _data[0] != MAGIC0 || _data[1] != MAGIC1
+                    || _data[2] != kind) {
+                throw new IllegalArgumentException("not a gitlet object");
+            }
+            _pos = 3;
+            int version = (int) varint();
+            if (version > VERSION) {
+                throw new IllegalArgumentException("object written by a "
+                        + "newer version of gitlet");
+            }
+            return version;
+        }
+
+        /** Return the next byte.
+         * @return the byte, from 0 to 255. */
+        int read() {
+            check(1);
+            int result = _data[_pos] & 0xff;
+            _pos += 1;
+            return result;
+        }
+
+        /** Copy the next LEN bytes into DEST from POS.
+         * @param dest where they go.
+         * @param pos the first byte of DEST written.
+         * @param len how many. */
+        void read(byte[] dest, int pos, int len) {
+            check(len);
+            System.arraycopy(_data, _pos, dest, pos, len);
+            _pos += len;
+        }
+
+        /** Return whether all the bytes have been read.
+         * @return true at the end. */
+        boolean atEnd() {
+            return _pos >= _data.length;
+        }
+
+        /** Return the next varint.
+         * @return the number. */
+        long varint() {
+            long result = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                int b = read();
+                result |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("bad varint");
+        }
+
+        /** Return the next zigzag varint.
+         * @return the number. */
+        long signed() {
+            long n = varint();
+            return (n >>> 1) ^ -(n & 1);
+        }
+
+        /** Return the next string.
+         * @return the string. */
+        String string() {
+            int length = (int) varint();
+            check(length);
+            String result = new String(_data, _pos, length,
+                    StandardCharsets.UTF_8);
+            _pos += length;
+            return result;
+        }
+
+        /** Return the next id.
+         * @return the hexadecimal sha-1. */
+        String id() {
+            byte[] id = new byte[ID_SIZE];
+            read(id, 0, ID_SIZE);
+            return Utils.toHex(id);
+        }
+
+        /** Check that N more bytes are there.
+         * @param n the number of bytes. */
+        private void check(int n) {
+            if (n < 0 || _pos + n > _data.length) {
+                throw new IllegalArgumentException("truncated object");
+            }
+        }
+
+        /** The bytes. */
+        private final byte[] _data;
+        /** The position of the next byte. */
+        private int _pos;
+    }
+
+    /** The first magic byte. */
+    private static final byte MAGIC0 = 'g';
+    /** The second magic byte. */
+    private static final byte MAGIC1 = 'l';
+    /** The size of an id. */
+    private static final int ID_SIZE = Utils.UID_LENGTH / 2;
+    /** The longest varint. */
+    private static final int MAX_VARINT = 10;
+    /** The size a buffer starts at. */
+    private static final int INITIAL_SIZE = 256;
+
+}
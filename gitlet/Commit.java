@@ -1,53 +1,82 @@
 package gitlet;
 
-import java.io.File;
-import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 /** Commit class for Gitlet, the object to perform commit.
  *  @author Xiaoyi Zhu
  */
 
-public class Commit implements Serializable {
+public class Commit implements Codec.Encodable {
 
     /** Make a commit withe the given information.
      * @param message commit message.
      * @param parent first parent.
      * @param parent2 second parent.
-     * @param stagingMap staging area.
+     * @param stagingMap staging area, blob ids saved by file name.
      * @param init whether it is init.
      * @param isMerge whether it is from merge.
      * @param branchName branch name.
      * @param rmList remove list. */
     public Commit(String message, Commit parent, Commit parent2,
-                  HashMap<String, Blobs> stagingMap, boolean init,
+                  HashMap<String, String> stagingMap, boolean init,
                   boolean isMerge, String branchName, List<String> rmList) {
         if (init) {
-            _timeS = "Wed Dec 31 16:00:00 1969 -0800";
+            _timeS = INIT_TIME;
             _parentId = null;
-            _allFiles = new HashMap<>();
+            _treeId = Tree.init();
         } else {
             _time = ZonedDateTime.now();
-            _timeS = _time.format(DateTimeFormatter.ofPattern
-                            ("EEE MMM d HH:mm:ss yyyy xxxx"));
+            _timeS = _time.format(TIME_FORMAT);
             _parentId = parent.getSha();
             if (isMerge) {
                 _parentId2 = parent2.getSha();
             }
-            _allFiles = copyAllFiles(parent);
-            update(_allFiles, stagingMap, rmList);
+            _treeId = Tree.update(parent._treeId, stagingMap, rmList);
         }
         _message = message;
         _fromMerge = isMerge;
-        _sha = getSha();
+        _sha = computeSha();
         _branchName = branchName;
     }
 
+    /** Make an empty commit, filled in by decode(). */
+    private Commit() {
+    }
+
+    /** Return a commit of an older repo made again over the tree TREEID,
+     * keeping its time and message. Its sha-1 is computed the way it is
+     * now.
+     * @param time the time of the commit, null for the initial commit.
+     * @param message the commit message.
+     * @param parentId the sha-1 of its first parent, null if none.
+     * @param parentId2 the sha-1 of its second parent, null if none.
+     * @param treeId the id of its tree.
+     * @param branchName branch name.
+     * @return the commit. */
+    static Commit migrated(ZonedDateTime time, String message,
+                           String parentId, String parentId2,
+                           String treeId, String branchName) {
+        Commit result = new Commit();
+        result._time = time;
+        result._timeS = time == null ? INIT_TIME : time.format(TIME_FORMAT);
+        result._parentId = parentId;
+        result._parentId2 = parentId2;
+        result._fromMerge = parentId2 != null;
+        result._treeId = treeId;
+        result._message = message;
+        result._branchName = branchName;
+        result._sha = result.computeSha();
+        return result;
+    }
+
     /** init a Commit.
      * @return the new commit object. */
     static Commit init() {
@@ -55,33 +84,105 @@ public class Commit implements Serializable {
                 false, "master", null);
     }
 
-    /** Return a Blobs according to the file name.
+    /** Return a Blobs according to the file name, read from the store.
      @param fileName file name.
      @return a Blobs if there is on, null if not. */
     public Blobs getBlobs(String fileName) {
-        if (_allFiles.containsKey(fileName)) {
-            return _allFiles.get(fileName);
-        }
-        return null;
+        return ObjectStore.readBlobs(getBlobId(fileName));
+    }
+
+    /** Return the sha-1 of the blob of the file name.
+     @param fileName file name.
+     @return the blob id if there is one, null if not. */
+    public String getBlobId(String fileName) {
+        return Tree.lookup(_treeId, fileName);
     }
 
-    /** Return the hash of this commit, form by the string of all files name
-     * + time + parent + message.
+    /** Return the hash of this commit, computed once when it was made.
      * @return The sha-1 String. */
     public String getSha() {
-        String allfile = "";
-        for (Map.Entry<String, Blobs> entry : _allFiles.entrySet()) {
-            String key = entry.getKey();
-            allfile += key;
+        return _sha;
+    }
+
+    /** Return the hash of this commit, form by the id of its tree
+     * + parent(s) + time + message, hashed in one pass. The id of the tree
+     * covers the sorted names and blob ids of all the files, so the hash
+     * does not depend on any map order.
+     * @return The sha-1 String. */
+    private String computeSha() {
+        MessageDigest md = Utils.sha1Digest();
+        Utils.update(md, "tree " + _treeId + "\n");
+        if (_parentId != null) {
+            Utils.update(md, "parent " + _parentId + "\n");
+        }
+        if (_fromMerge) {
+            Utils.update(md, "parent " + _parentId2 + "\n");
         }
-        if (_parentId == null) {
-            return Utils.sha1(_timeS, _message, allfile);
+        Utils.update(md, "time " + _timeS + "\n");
+        byte[] message = _message.getBytes(StandardCharsets.UTF_8);
+        Utils.update(md, "message " + message.length + "\n");
+        md.update(message);
+        return Utils.hexDigest(md);
+    }
+
+    /** Return the bytes of this commit: its flags, its id, the ids of its
+     * tree and parents, its time in seconds and the offset of its zone,
+     * its message and its branch. The string of the time is made again
+     * from the time when it is read.
+     * @return the encoded commit. */
+    @Override
+    public byte[] encode() {
+        Codec.Writer out = new Codec.Writer(Codec.COMMIT);
+        int flags = (_parentId != null ? HAS_PARENT : 0)
+                | (_fromMerge ? FROM_MERGE : 0)
+                | (_time != null ? HAS_TIME : 0);
+        out.write(flags);
+        out.id(_sha);
+        out.id(_treeId);
+        if (_parentId != null) {
+            out.id(_parentId);
         }
-        String parentToString = _parentId;
         if (_fromMerge) {
-            parentToString += _parentId2;
+            out.id(_parentId2);
+        }
+        if (_time != null) {
+            out.signed(_time.toEpochSecond());
+            out.signed(_time.getOffset().getTotalSeconds());
         }
-        return Utils.sha1(_timeS, _message, parentToString, allfile);
+        out.string(_message);
+        out.string(_branchName);
+        return out.toByteArray();
+    }
+
+    /** Return the commit read from IN, written by encode().
+     * @param in the reader, past the header.
+     * @param version the version of the layout.
+     * @return the commit. */
+    static Commit decode(Codec.Reader in, int version) {
+        Commit result = new Commit();
+        int flags = in.read();
+        result._sha = in.id();
+        result._treeId = in.id();
+        if ((flags & HAS_PARENT) != 0) {
+            result._parentId = in.id();
+        }
+        result._fromMerge = (flags & FROM_MERGE) != 0;
+        if (result._fromMerge) {
+            result._parentId2 = in.id();
+        }
+        if ((flags & HAS_TIME) != 0) {
+            long seconds = in.signed();
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds(
+                    (int) in.signed());
+            result._time = ZonedDateTime.ofInstant(
+                    Instant.ofEpochSecond(seconds), offset);
+            result._timeS = result._time.format(TIME_FORMAT);
+        } else {
+            result._timeS = INIT_TIME;
+        }
+        result._message = in.string();
+        result._branchName = in.string();
+        return result;
     }
 
     /** Return the branch of this commit.
@@ -93,57 +194,13 @@ public class Commit implements Serializable {
     /** Return a list of all the files name in this commit.
      * @return a list of all the files name in this commit. */
     public LinkedList<String> getAllFilesList() {
-        LinkedList<String> result = new LinkedList<String>();
-        for (Map.Entry<String, Blobs> entry : _allFiles.entrySet()) {
-            String key = entry.getKey();
-            result.add(key);
-        }
-        return result;
+        return new LinkedList<String>(getFileMap().keySet());
     }
 
-    /** Copy the _allFiles from parent.
-     * @param parent the parent.
-     * @return a hashmap from its (first) parent. */
-    public HashMap<String, Blobs> copyAllFiles(Commit parent) {
-        HashMap<String, Blobs> result = new HashMap<String, Blobs>();
-        for (Map.Entry<String, Blobs> entry : parent._allFiles.entrySet()) {
-            String key = entry.getKey();
-            Blobs b = entry.getValue();
-            result.put(key, b);
-        }
-        return result;
-    }
-
-    /** Update the map storing all the files with its names in this commit
-     * from the staging list.
-     * @param  filemap old file map from parent.
-     * @param  stagingMap map from stage area.
-     * @param removeList remove list. */
-    public void update(HashMap<String, Blobs> filemap,
-                       HashMap<String, Blobs> stagingMap,
-                       List<String> removeList) {
-        if (!stagingMap.isEmpty()) {
-            for (Map.Entry<String, Blobs> entry : stagingMap.entrySet()) {
-                String filename = entry.getKey();
-                Blobs stagingB = entry.getValue();
-                if (!filemap.containsKey(filename)) {
-                    filemap.put(filename, stagingB);
-                } else {
-                    Blobs commitB = (Blobs) filemap.get(filename);
-                    if (!commitB.getsha().equals(stagingB.getsha())) {
-                        filemap.replace(filename, stagingB);
-                    }
-                }
-                File toDelete = new File(".gitlet/staging/"
-                        + stagingB.getsha());
-                toDelete.delete();
-            }
-        }
-        if (!removeList.isEmpty()) {
-            while (!removeList.isEmpty()) {
-                filemap.remove(removeList.remove(0));
-            }
-        }
+    /** Return the id of the root tree of this commit.
+     * @return the tree id. */
+    public String getTreeId() {
+        return _treeId;
     }
 
     /** Return commit's parent's sha-1.
@@ -162,7 +219,7 @@ public class Commit implements Serializable {
      * @param fileName the file to be checked.
      * @return a boolean indicates whether it is tracking. */
     public boolean tracking(String fileName) {
-        return _allFiles.containsKey(fileName);
+        return getBlobId(fileName) != null;
     }
 
     /** Return commit's time.
@@ -171,16 +228,25 @@ public class Commit implements Serializable {
         return _timeS;
     }
 
+    /** Return commit's time in seconds since the epoch.
+     * @return time, 0 for the initial commit. */
+    public long getTimestamp() {
+        return _time == null ? 0 : _time.toEpochSecond();
+    }
+
     /** Return commit's message.
      * @return  commit message. */
     public String getMessage() {
         return _message;
     }
 
-    /** Return commit's hashmap of files.
+    /** Return commit's hashmap of blob ids, saved by file name. The map is
+     * made from the trees, so it costs as much as the number of files.
      * @return the hashmap of all files. */
-    public HashMap<String, Blobs> getFileMap() {
-        return _allFiles;
+    public HashMap<String, String> getFileMap() {
+        HashMap<String, String> result = new HashMap<>();
+        Tree.flatten(_treeId, "", result);
+        return result;
     }
 
     /** Return both parent id if from merge.
@@ -196,6 +262,21 @@ public class Commit implements Serializable {
         return _fromMerge;
     }
 
+    /** The version of the fields for Java serialization, as it was when
+     * commits were stored that way, so they are still read. */
+    private static final long serialVersionUID = -468635561267315016L;
+    /** The format of the time of a commit. */
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("EEE MMM d HH:mm:ss yyyy xxxx");
+    /** The time of the initial commit. */
+    private static final String INIT_TIME = "Wed Dec 31 16:00:00 1969 -0800";
+    /** The flag of a commit with a parent. */
+    private static final int HAS_PARENT = 1;
+    /** The flag of a commit with a second parent. */
+    private static final int FROM_MERGE = 2;
+    /** The flag of a commit with a time. */
+    private static final int HAS_TIME = 4;
+
     /** The time of this commit. */
     private ZonedDateTime _time;
     /** The String pf time of this commit. */
@@ -213,8 +294,8 @@ public class Commit implements Serializable {
     private String _message;
     /** The String holds the branch made started by this commit. */
     private String _branchName;
-    /** The Hashmap stores all the file on this commit, saved by file name. */
-    private HashMap<String, Blobs> _allFiles;
+    /** The id of the root tree holding all the file on this commit. */
+    private String _treeId;
 
 }
 
@@ -0,0 +1,347 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/** The commit-graph of a repository, kept in .gitlet/commit-graph next to
+ *  the commit list and read through a MappedByteBuffer. After a short
+ *  header it holds one record per commit, in the order of the commit list:
+ *  the positions of its two parents (-1 for none), its generation (1 for
+ *  the initial commit, otherwise one more than its highest parent) and its
+ *  time in seconds. A commit can only reach commits of a lower generation,
+ *  which lets ancestry queries skip most of the history. The record of a
+ *  new commit is kept in memory until the commit list is written, then
+ *  appended, and missing ones are filled in from the commits themselves
+ *  when the graph is opened.
+ *  @author Xiaoyi Zhu
+ */
+class CommitGraph {
+
+    /** The file holding the graph. */
+    static final File GRAPH_FILE = new File(".gitlet/commit-graph");
+
+    /** Return the number of commits in the graph.
+     * @return the count. */
+    static int count() {
+        return stored() + _pending.position() / RECORD;
+    }
+
+    /** Return the position of the first parent of the commit at POS.
+     * @param pos the position of the commit.
+     * @return the position of the parent, -1 if there is none. */
+    static int parent1(int pos) {
+        return record(pos).getInt(offset(pos));
+    }
+
+    /** Return the position of the second parent of the commit at POS.
+     * @param pos the position of the commit.
+     * @return the position of the parent, -1 if there is none. */
+    static int parent2(int pos) {
+        return record(pos).getInt(offset(pos) + 4);
+    }
+
+    /** Return the generation of the commit at POS.
+     * @param pos the position of the commit.
+     * @return the generation. */
+    static int generation(int pos) {
+        return record(pos).getInt(offset(pos) + 8);
+    }
+
+    /** Return the time of the commit at POS.
+     * @param pos the position of the commit.
+     * @return the seconds since the epoch. */
+    static long time(int pos) {
+        return record(pos).getLong(offset(pos) + 12);
+    }
+
+    /** Return the number of commits in the file of the graph.
+     * @return the count. */
+    private static int stored() {
+        return (map().limit() - HEADER) / RECORD;
+    }
+
+    /** Return the buffer holding the record of the commit at POS.
+     * @param pos the position of the commit.
+     * @return the mapped graph, or the records kept in memory. */
+    private static ByteBuffer record(int pos) {
+        return pos < stored() ? _map : _pending;
+    }
+
+    /** Return the offset of the record of the commit at POS in the buffer
+     * record() returns.
+     * @param pos the position of the commit.
+     * @return the offset. */
+    private static int offset(int pos) {
+        int stored = stored();
+        return pos < stored ? HEADER + RECORD * pos
+                : RECORD * (pos - stored);
+    }
+
+    /** Return the position of the commit ID.
+     * @param id the full sha-1 of the commit.
+     * @return the position, -1 if there is no such commit. */
+    static int position(String id) {
+        Integer pos = CommitIndex.position(id);
+        return pos == null ? -1 : pos;
+    }
+
+    /** Return the id of the commit at POS.
+     * @param pos the position of the commit.
+     * @return the sha-1 of the commit. */
+    static String id(int pos) {
+        return ObjectStore.commitIds().get(pos);
+    }
+
+    /** Return whether the commit ANCESTOR can be reached from the parents
+     * of the commit DESCENDANT.
+     * @param ancestor the full sha-1 of the possible ancestor.
+     * @param descendant the full sha-1 of the possible descendant.
+     * @return true if it is a proper ancestor. */
+    static boolean isAncestor(String ancestor, String descendant) {
+        int target = position(ancestor);
+        int start = position(descendant);
+        return target >= 0 && start >= 0 && reaches(start, target);
+    }
+
+    /** Return the best common ancestors of the commits ONE and TWO, those
+     * that are not an ancestor of another common ancestor. There is one
+     * for most histories, but a criss-cross merge can leave several.
+     * Both commits paint their ancestors, newest generation first, and a
+     * commit reached from both sides is a candidate whose own ancestors
+     * are all stale. The walk ends once only stale commits are left, which
+     * can never make a better candidate.
+     * @param one the full sha-1 of a commit.
+     * @param two the full sha-1 of the other commit.
+     * @return the sha-1 of the bases, newest first, empty if the commits
+     * share no history. */
+    static List<String> mergeBases(String one, String two) {
+        int a = position(one);
+        int b = position(two);
+        List<String> result = new ArrayList<>();
+        if (a < 0 || b < 0) {
+            return result;
+        }
+        if (a == b) {
+            result.add(one);
+            return result;
+        }
+        List<Integer> found = paint(a, b);
+        for (int i = 0; i < found.size(); i += 1) {
+            boolean redundant = false;
+            for (int j = 0; j < found.size() && !redundant; j += 1) {
+                redundant = i != j && reaches(found.get(j), found.get(i));
+            }
+            if (!redundant) {
+                result.add(id(found.get(i)));
+            }
+        }
+        return result;
+    }
+
+    /** Helper of mergeBases() that paints the ancestors of the commits at
+     * A and B.
+     * @param a the position of a commit.
+     * @param b the position of the other commit.
+     * @return the positions of the common ancestors found, newest first,
+     * which may still hold ancestors of one another. */
+    private static List<Integer> paint(int a, int b) {
+        byte[] flags = new byte[count()];
+        PriorityQueue<Integer> queue = new PriorityQueue<>((x, y) -> {
+            int cmp = Integer.compare(generation(y), generation(x));
+            if (cmp == 0) {
+                cmp = Long.compare(time(y), time(x));
+            }
+            return cmp != 0 ? cmp : Integer.compare(x, y);
+        });
+        flags[a] = ONE;
+        flags[b] = TWO;
+        queue.add(a);
+        queue.add(b);
+        int active = 2;
+        List<Integer> found = new ArrayList<>();
+        while (active > 0) {
+            int curr = queue.poll();
+            int mark = flags[curr] & (ONE | TWO | STALE);
+            if ((mark & STALE) == 0) {
+                active -= 1;
+            }
+            if (mark == (ONE | TWO)) {
+                found.add(curr);
+                mark |= STALE;
+            }
+            for (int p : new int[] {parent1(curr), parent2(curr)}) {
+                if (p < 0 || (flags[p] & mark) == mark) {
+                    continue;
+                }
+                boolean queued = flags[p] != 0;
+                boolean wasStale = (flags[p] & STALE) != 0;
+                flags[p] |= mark;
+                boolean stale = (flags[p] & STALE) != 0;
+                if (!queued) {
+                    queue.add(p);
+                    active += stale ? 0 : 1;
+                } else if (stale && !wasStale) {
+                    active -= 1;
+                }
+            }
+        }
+        return found;
+    }
+
+    /** Return whether the commit at TARGET can be reached from the parents
+     * of the commit at START. The walk never goes below the generation of
+     * TARGET, since no commit there can reach it.
+     * @param start the position of the possible descendant.
+     * @param target the position of the possible ancestor.
+     * @return true if it is a proper ancestor. */
+    private static boolean reaches(int start, int target) {
+        int minGeneration = generation(target);
+        BitSet seen = new BitSet(count());
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            int curr = queue.poll();
+            for (int p : new int[] {parent1(curr), parent2(curr)}) {
+                if (p == target) {
+                    return true;
+                }
+                if (p >= 0 && !seen.get(p) && generation(p) > minGeneration) {
+                    seen.set(p);
+                    queue.add(p);
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Append the record of the new commit COM, which is the last of the
+     * commit list.
+     * @param com the commit. */
+    static void add(Commit com) {
+        int pos = position(com.getSha());
+        if (count() == pos) {
+            append(com);
+        }
+    }
+
+    /** Append the records kept in memory to the file of the graph, once
+     * the commit list holds their commits. */
+    static void flush() {
+        if (_pending.position() == 0) {
+            return;
+        }
+        _pending.flip();
+        write(_pending);
+        _pending.clear();
+    }
+
+    /** Forget the graph and the records kept in memory, so they are read
+     * and made again when next needed. */
+    static void reset() {
+        _map = null;
+        _pending.clear();
+    }
+
+    /** Return the mapped graph, first adding the records of the commits
+     * it is missing.
+     * @return the mapped graph. */
+    private static MappedByteBuffer map() {
+        if (_map == null) {
+            try (FileChannel ch = FileChannel.open(GRAPH_FILE.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                if (ch.size() == 0) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER);
+                    header.putInt(MAGIC).putInt(VERSION).flip();
+                    PackFile.writeFully(ch, header);
+                }
+                _map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            if (_map.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("corrupt commit-graph");
+            }
+            List<String> ids = ObjectStore.commitIds();
+            for (int pos = count(); pos < ids.size(); pos = count()) {
+                append(ObjectStore.readCommit(ids.get(pos)));
+            }
+        }
+        return _map;
+    }
+
+    /** Add the record of COM at the end of the graph, whose parents must
+     * be in the graph already: to the file if the commit list holds it,
+     * otherwise to the records kept in memory.
+     * @param com the commit. */
+    private static void append(Commit com) {
+        int p1 = com.getParentId() == null ? -1 : position(com.getParentId());
+        int p2 = com.getParentId2() == null ? -1
+                : position(com.getParentId2());
+        int gen = 1;
+        for (int p : new int[] {p1, p2}) {
+            if (p >= 0) {
+                gen = Math.max(gen, generation(p) + 1);
+            }
+        }
+        if (count() < ObjectStore.saved()) {
+            ByteBuffer record = ByteBuffer.allocate(RECORD);
+            record.putInt(p1).putInt(p2).putInt(gen)
+                    .putLong(com.getTimestamp()).flip();
+            write(record);
+            return;
+        }
+        if (_pending.remaining() < RECORD) {
+            ByteBuffer more = ByteBuffer.allocate(2 * _pending.capacity());
+            _pending.flip();
+            _pending = more.put(_pending);
+        }
+        _pending.putInt(p1).putInt(p2).putInt(gen)
+                .putLong(com.getTimestamp());
+    }
+
+    /** Write the records RECORDS at the end of the file of the graph.
+     * @param records the records, from their position to their limit. */
+    private static void write(ByteBuffer records) {
+        try (FileChannel ch = FileChannel.open(GRAPH_FILE.toPath(),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ch.position(ch.size());
+            PackFile.writeFully(ch, records);
+            _map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** The first int of the graph. */
+    private static final int MAGIC = 0x43475048;
+    /** The version of the format of the graph. */
+    private static final int VERSION = 1;
+    /** The size of the header: magic and version. */
+    private static final int HEADER = 8;
+    /** The size of the record of one commit. */
+    private static final int RECORD = 20;
+
+    /** The paint of the commits reached from the first commit. */
+    private static final byte ONE = 1;
+    /** The paint of the commits reached from the second commit. */
+    private static final byte TWO = 2;
+    /** The paint of the commits below a common ancestor. */
+    private static final byte STALE = 4;
+
+    /** The mapped graph, null until first needed. */
+    private static MappedByteBuffer _map;
+    /** The records of the commits not in the commit list yet, up to its
+     * position. */
+    private static ByteBuffer _pending = ByteBuffer.allocate(RECORD * 16);
+
+}
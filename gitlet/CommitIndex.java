@@ -0,0 +1,93 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/** An index of the ids of all commits, built from the commit list the
+ *  first time it is needed in a process. Full ids are found through a hash
+ *  map, and shortened ids through a binary search in the sorted ids, so
+ *  neither needs to look at every commit.
+ *  @author Xiaoyi Zhu
+ */
+class CommitIndex {
+
+    /** Return the ids of at most LIMIT commits whose id starts with
+     * PREFIX, in sorted order.
+     * @param prefix the (shortened) id.
+     * @param limit the most ids to return.
+     * @return the matching ids, empty if there is none. */
+    static List<String> resolve(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        if (prefix.length() == Utils.UID_LENGTH) {
+            if (positions().containsKey(prefix)) {
+                result.add(prefix);
+            }
+            return result;
+        }
+        String[] sorted = sorted();
+        int i = Arrays.binarySearch(sorted, prefix);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        while (i < sorted.length && result.size() < limit
+                && sorted[i].startsWith(prefix)) {
+            result.add(sorted[i]);
+            i += 1;
+        }
+        return result;
+    }
+
+    /** Return the position of the commit ID in the commit list.
+     * @param id the full sha-1 of the commit.
+     * @return the position, null if there is no such commit. */
+    static Integer position(String id) {
+        return positions().get(id);
+    }
+
+    /** Add the new commit ID, which is the last of the commit list.
+     * @param id the full sha-1 of the commit. */
+    static void add(String id) {
+        if (_positions != null) {
+            _positions.put(id, _positions.size());
+        }
+        _sorted = null;
+    }
+
+    /** Forget the ids, so they are read again when next needed. */
+    static void reset() {
+        _positions = null;
+        _sorted = null;
+    }
+
+    /** Return the position of each commit in the commit list, saved by
+     * its id.
+     * @return the map of positions. */
+    private static HashMap<String, Integer> positions() {
+        if (_positions == null) {
+            List<String> ids = ObjectStore.commitIds();
+            _positions = new HashMap<>(2 * ids.size());
+            for (String id : ids) {
+                _positions.put(id, _positions.size());
+            }
+        }
+        return _positions;
+    }
+
+    /** Return the ids of all commits, sorted.
+     * @return the sorted ids. */
+    private static String[] sorted() {
+        if (_sorted == null) {
+            _sorted = ObjectStore.commitIds().toArray(new String[0]);
+            Arrays.sort(_sorted);
+        }
+        return _sorted;
+    }
+
+    /** The ids of all commits sorted, null until first needed. */
+    private static String[] _sorted;
+    /** The positions of all commits, null until first needed. */
+    private static HashMap<String, Integer> _positions;
+
+}
@@ -0,0 +1,76 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/** The settings of one repository, kept in .gitlet/config as
+ *  "name=value" lines.
+ *  @author Xiaoyi Zhu
+ */
+class Config {
+
+    /** The file holding the settings. */
+    static final File CONFIG_FILE = new File(".gitlet/config");
+
+    /** The name of the Deflater level used for the objects in the store,
+     * 0 (stored as is) to 9 (smallest). */
+    static final String COMPRESSION = "compression";
+    /** The level used when none is set, fast like git's loose objects. */
+    static final int DEFAULT_COMPRESSION = 1;
+
+    /** Return the setting NAME as an int, DEFAULTVALUE if it is not set.
+     * @param name the name of the setting.
+     * @param defaultValue the value when it is not set.
+     * @return the value of the setting. */
+    static int getInt(String name, int defaultValue) {
+        String value = get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value);
+    }
+
+    /** Return the setting NAME, null if it is not set.
+     * @param name the name of the setting.
+     * @return the value of the setting. */
+    static String get(String name) {
+        return settings().getProperty(name);
+    }
+
+    /** Set NAME to VALUE and write the settings back to the file.
+     * @param name the name of the setting.
+     * @param value the new value. */
+    static void set(String name, String value) {
+        settings().setProperty(name, value);
+        try (OutputStream out = Files.newOutputStream(CONFIG_FILE.toPath())) {
+            _settings.store(out, null);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the settings, read from the file the first time.
+     * @return the settings. */
+    private static Properties settings() {
+        if (_settings == null) {
+            _settings = new Properties();
+            if (CONFIG_FILE.isFile()) {
+                try (InputStream in =
+                             Files.newInputStream(CONFIG_FILE.toPath())) {
+                    _settings.load(in);
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+            }
+        }
+        return _settings;
+    }
+
+    /** The settings of this repository, null until first needed. */
+    private static Properties _settings;
+
+}
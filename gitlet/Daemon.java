@@ -0,0 +1,320 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/** The gitlet daemon, which runs the commands of one directory in a single
+ *  process, so the repo, the caches of objects and the indexes stay in
+ *  memory between them. "java gitlet.Main daemon" starts it in the
+ *  directory of a repository, and "java gitlet.Main daemon stop" stops it.
+ *  While it runs, Main sends every command given in that directory to it
+ *  over the Unix domain socket .gitlet/daemon.sock, and copies what the
+ *  command prints back to its own stdout and stderr, so the output is the
+ *  same as when the command runs by itself.
+ *  A client sends the canonical path of its directory, the number of
+ *  arguments and each argument, every string as its length and its UTF-8
+ *  bytes. The daemon answers with frames of a kind and a length: stdout
+ *  or stderr bytes, and last the exit status, whose length is the status.
+ *  A client in another directory gets WRONG_DIR and runs the command
+ *  itself. Commands are run one at a time, in the order they connect.
+ *  A command that stops early leaves the repo as it was on disk, the same
+ *  as when its process exits, since the daemon reads it again.
+ *  @author Xiaoyi Zhu
+ */
+class Daemon {
+
+    /** The socket the daemon listens on. */
+    static final File SOCKET = new File(".gitlet/daemon.sock");
+
+    /** Run the command ARGS in the daemon of this directory, if there is
+     * one, with its output written here.
+     * @param args the command and its operands.
+     * @return the exit status of the command, null if there is no daemon
+     * to run it. */
+    static Integer forward(String[] args) {
+        if (!SOCKET.exists()) {
+            return null;
+        }
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(address());
+        } catch (IOException excp) {
+            return null;
+        }
+        try (SocketChannel ch = channel) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(ch)));
+            writeString(out, directory());
+            out.writeInt(args.length);
+            for (String arg : args) {
+                writeString(out, arg);
+            }
+            out.flush();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(ch), BUFFER_SIZE));
+            byte[] buf = new byte[BUFFER_SIZE];
+            while (true) {
+                byte kind = in.readByte();
+                int length = in.readInt();
+                if (kind != OUT && kind != ERR && kind != EXIT
+                        && kind != WRONG_DIR) {
+                    throw new IOException("bad frame " + kind);
+                }
+                if (kind == EXIT) {
+                    System.out.flush();
+                    System.err.flush();
+                    return length;
+                } else if (kind == WRONG_DIR) {
+                    return null;
+                }
+                PrintStream to = kind == OUT ? System.out : System.err;
+                checkLength(length, Integer.MAX_VALUE);
+                while (length > 0) {
+                    int n = in.read(buf, 0, Math.min(buf.length, length));
+                    if (n < 0) {
+                        throw new IOException("end of stream");
+                    }
+                    to.write(buf, 0, n);
+                    length -= n;
+                }
+            }
+        } catch (IOException excp) {
+            System.err.println("Lost the gitlet daemon: "
+                    + excp.getMessage());
+            return 1;
+        }
+    }
+
+    /** Start a daemon in this directory, or tell that there is none to
+     * stop, as ARGS ask.
+     * @param args "daemon", or "daemon stop". */
+    static void start(String[] args) {
+        if (args.length == 2 && args[1].equals("stop")) {
+            Utils.message("No gitlet daemon is running.");
+        } else if (args.length != 1) {
+            Utils.message("Incorrect operands.");
+        } else if (!Files.exists(Paths.get(".gitlet"))) {
+            Utils.message("Not in an initialized Gitlet directory.");
+        } else {
+            serve();
+        }
+    }
+
+    /** Run the commands sent to the socket until one stops the daemon. A
+     * socket left by a daemon that was killed is replaced. A client that
+     * sends a malformed or truncated request only loses its connection. */
+    private static void serve() {
+        try (ServerSocketChannel server = ServerSocketChannel.open(
+                StandardProtocolFamily.UNIX)) {
+            Files.deleteIfExists(SOCKET.toPath());
+            server.bind(address());
+            Runtime.getRuntime().addShutdownHook(new Thread(SOCKET::delete));
+            String dir = directory();
+            while (!_stopped) {
+                try (SocketChannel ch = server.accept()) {
+                    handle(ch, dir);
+                } catch (IOException | RuntimeException excp) {
+                    continue;
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            SOCKET.delete();
+        }
+    }
+
+    /** Run the command sent to CH, if it comes from the directory DIR.
+     * @param ch the connection of a client.
+     * @param dir the canonical path of this directory. */
+    private static void handle(SocketChannel ch, String dir)
+        throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(ch)));
+        String from = readString(in);
+        String[] args = new String[checkLength(in.readInt(), MAX_ARGS)];
+        for (int i = 0; i < args.length; i += 1) {
+            args[i] = readString(in);
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(ch), BUFFER_SIZE));
+        if (!from.equals(dir)) {
+            out.writeByte(WRONG_DIR);
+            out.writeInt(0);
+        } else {
+            int status = run(args, out);
+            out.writeByte(EXIT);
+            out.writeInt(status);
+        }
+        out.flush();
+    }
+
+    /** Run the command ARGS with its output written into OUT.
+     * @param args the command and its operands.
+     * @param out where the frames go.
+     * @return the exit status. */
+    private static int run(String[] args, DataOutputStream out) {
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        PrintStream cmdOut = new PrintStream(new BufferedOutputStream(
+                new Frames(out, OUT), BUFFER_SIZE));
+        PrintStream cmdErr = new PrintStream(new BufferedOutputStream(
+                new Frames(out, ERR), BUFFER_SIZE));
+        System.setOut(cmdOut);
+        System.setErr(cmdErr);
+        int status = 0;
+        try {
+            if (args.length > 0 && args[0].equals("daemon")) {
+                control(args);
+            } else {
+                WorkTree.reset();
+                Main.run(args);
+            }
+        } catch (GitletException excp) {
+            forget();
+        } catch (RuntimeException excp) {
+            System.err.print("Exception in thread \"main\" ");
+            excp.printStackTrace();
+            status = 1;
+            forget();
+        } finally {
+            cmdOut.flush();
+            cmdErr.flush();
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+        return status;
+    }
+
+    /** Run the daemon command ARGS sent to a running daemon.
+     * @param args "daemon", or "daemon stop". */
+    private static void control(String[] args) {
+        if (args.length == 2 && args[1].equals("stop")) {
+            _stopped = true;
+        } else if (args.length == 1) {
+            Utils.message("A gitlet daemon is already running.");
+        } else {
+            Utils.message("Incorrect operands.");
+        }
+    }
+
+    /** Forget what a command that failed left in memory. */
+    private static void forget() {
+        Main.reset();
+        Index.reset();
+        ObjectStore.reset();
+    }
+
+    /** Return the address of the socket.
+     * @return the address. */
+    private static UnixDomainSocketAddress address() {
+        return UnixDomainSocketAddress.of(SOCKET.toPath());
+    }
+
+    /** Return the canonical path of the working directory.
+     * @return the path. */
+    private static String directory() throws IOException {
+        return new File(".").getCanonicalPath();
+    }
+
+    /** Write S into OUT, as its length and its UTF-8 bytes.
+     * @param out the stream.
+     * @param s the string. */
+    private static void writeString(DataOutputStream out, String s)
+        throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Return the string read from IN, as writeString wrote it.
+     * @param in the stream.
+     * @return the string. */
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[checkLength(in.readInt(), MAX_STRING)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Return LENGTH, a length or a count read from a socket, if it is
+     * from 0 to MAX.
+     * @param length the length read.
+     * @param max the largest one allowed.
+     * @return the length. */
+    private static int checkLength(int length, int max) throws IOException {
+        if (length < 0 || length > max) {
+            throw new IOException("bad length " + length);
+        }
+        return length;
+    }
+
+    /** A stream writing its bytes as frames of one kind. */
+    private static class Frames extends OutputStream {
+
+        /** A stream writing frames of the kind KIND into OUT.
+         * @param out where the frames go.
+         * @param kind OUT or ERR. */
+        Frames(DataOutputStream out, byte kind) {
+            _out = out;
+            _kind = kind;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            _out.writeByte(_kind);
+            _out.writeInt(len);
+            _out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            _out.flush();
+        }
+
+        /** Where the frames go. */
+        private final DataOutputStream _out;
+        /** The kind of the frames. */
+        private final byte _kind;
+    }
+
+    /** The kind of a frame of stdout bytes. */
+    private static final byte OUT = 1;
+    /** The kind of a frame of stderr bytes. */
+    private static final byte ERR = 2;
+    /** The kind of the last frame, whose length is the exit status. */
+    private static final byte EXIT = 3;
+    /** The kind of the answer to a client from another directory. */
+    private static final byte WRONG_DIR = 4;
+    /** The most arguments a client may send. */
+    private static final int MAX_ARGS = 1 << 12;
+    /** The longest string a client may send, in bytes. */
+    private static final int MAX_STRING = 1 << 20;
+    /** The size of the buffers of the streams. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Whether a client asked the daemon to stop. */
+    private static boolean _stopped;
+
+}
@@ -0,0 +1,144 @@
+package gitlet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** Deltas between two versions of an object, used inside packs. A delta
+ *  is the size of the base and of the target as varints (those of Codec),
+ *  then a list of instructions that build the target:
+ *  - COPY, offset, length: copy LENGTH bytes of the base from OFFSET,
+ *  - INSERT, length, bytes: insert the LENGTH bytes that follow.
+ *  Matches are found by indexing the base in blocks of BLOCK bytes and
+ *  rolling a hash of the same width over the target.
+ *  @author Xiaoyi Zhu
+ */
+class Delta {
+
+    /** Return the delta that makes TARGET from BASE.
+     * @param base the base version.
+     * @param target the version to make.
+     * @return the instructions. */
+    static byte[] create(byte[] base, byte[] target) {
+        Codec.Writer out = new Codec.Writer();
+        out.varint(base.length);
+        out.varint(target.length);
+        HashMap<Integer, Integer> index = new HashMap<>();
+        for (int off = 0; off + BLOCK <= base.length; off += BLOCK) {
+            index.putIfAbsent(hash(base, off), off);
+        }
+        int insertStart = 0;
+        int i = 0;
+        int h = target.length >= BLOCK ? hash(target, 0) : 0;
+        while (i + BLOCK <= target.length) {
+            Integer found = index.get(h);
+            if (found != null && Arrays.equals(base, found, found + BLOCK,
+                    target, i, i + BLOCK)) {
+                int baseStart = found;
+                int targetStart = i;
+                while (targetStart > insertStart && baseStart > 0
+                        && base[baseStart - 1] == target[targetStart - 1]) {
+                    baseStart -= 1;
+                    targetStart -= 1;
+                }
+                int length = i - targetStart + BLOCK;
+                while (baseStart + length < base.length
+                        && targetStart + length < target.length
+                        && base[baseStart + length]
+                        == target[targetStart + length]) {
+                    length += 1;
+                }
+                insert(out, target, insertStart, targetStart);
+                out.write(COPY);
+                out.varint(baseStart);
+                out.varint(length);
+                i = targetStart + length;
+                insertStart = i;
+                if (i + BLOCK <= target.length) {
+                    h = hash(target, i);
+                }
+            } else {
+                if (i + BLOCK < target.length) {
+                    h = (h - (target[i] & 0xff) * TOP) * PRIME
+                            + (target[i + BLOCK] & 0xff);
+                }
+                i += 1;
+            }
+        }
+        insert(out, target, insertStart, target.length);
+        return out.toByteArray();
+    }
+
+    /** Return the target made by applying DELTA to BASE.
+     * @param base the base version.
+     * @param delta the instructions.
+     * @return the target. */
+    static byte[] apply(byte[] base, byte[] delta) {
+        Codec.Reader in = new Codec.Reader(delta);
+        if (in.varint() != base.length) {
+            throw new IllegalArgumentException("delta of another base");
+        }
+        byte[] result = new byte[(int) in.varint()];
+        int filled = 0;
+        while (!in.atEnd()) {
+            int op = in.read();
+            if (op == COPY) {
+                int offset = (int) in.varint();
+                int length = (int) in.varint();
+                System.arraycopy(base, offset, result, filled, length);
+                filled += length;
+            } else {
+                int length = (int) in.varint();
+                in.read(result, filled, length);
+                filled += length;
+            }
+        }
+        return result;
+    }
+
+    /** Write an INSERT of the bytes of TARGET from START to END into OUT,
+     * if there are any.
+     * @param out the instructions.
+     * @param target the version to make.
+     * @param start the first byte to insert.
+     * @param end the byte after the last one. */
+    private static void insert(Codec.Writer out, byte[] target,
+                               int start, int end) {
+        if (start < end) {
+            out.write(INSERT);
+            out.varint(end - start);
+            out.write(target, start, end - start);
+        }
+    }
+
+    /** Return the hash of the BLOCK bytes of DATA from OFF.
+     * @param data the bytes.
+     * @param off the first byte.
+     * @return the hash. */
+    private static int hash(byte[] data, int off) {
+        int h = 0;
+        for (int k = 0; k < BLOCK; k += 1) {
+            h = h * PRIME + (data[off + k] & 0xff);
+        }
+        return h;
+    }
+
+    /** The width of the blocks matched between base and target. */
+    static final int BLOCK = 16;
+    /** The instruction to copy from the base. */
+    private static final byte COPY = 0;
+    /** The instruction to insert new bytes. */
+    private static final byte INSERT = 1;
+    /** The multiplier of the rolling hash. */
+    private static final int PRIME = 31;
+    /** PRIME to the power BLOCK - 1, to roll the first byte out. */
+    private static final int TOP;
+
+    static {
+        int top = 1;
+        for (int k = 1; k < BLOCK; k += 1) {
+            top *= PRIME;
+        }
+        TOP = top;
+    }
+
+}
@@ -0,0 +1,219 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/** Line diffs, found with the linear-space version of Myers' algorithm
+ *  ("An O(ND) Difference Algorithm and Its Variations", 1986): the middle
+ *  snake of the shortest edit script is found by searching from both ends
+ *  at once, and the parts before and after it are diffed the same way, so
+ *  only two vectors of O(N + M) ints are needed. The lines are compared as
+ *  ints, the same int for equal lines, and the common prefix and suffix
+ *  are matched before the search starts.
+ *  Lines are kept with their line ending, and read as ISO-8859-1, one char
+ *  per byte, so any content is written back exactly as it was.
+ *  @author Xiaoyi Zhu
+ */
+class Diff {
+
+    /** Return the lines of the blob ID, read through the cache of Blobs.
+     * @param id the sha-1 of the blob, null for an empty file.
+     * @return the lines, each with its '\n' if it has one. */
+    static List<String> lines(String id) {
+        List<String> result = new ArrayList<>();
+        if (id == null) {
+            return result;
+        }
+        try (InputStream in = new ByteArrayInputStream(
+                Blobs.stored(id).getContent())) {
+            return lines(in);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the lines read from IN.
+     * @param in the stream, read to its end.
+     * @return the lines, each with its '\n' if it has one. */
+    static List<String> lines(InputStream in) throws IOException {
+        List<String> result = new ArrayList<>();
+        byte[] buf = new byte[BUFFER_SIZE];
+        StringBuilder line = new StringBuilder();
+        for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+            int start = 0;
+            for (int i = 0; i < n; i += 1) {
+                if (buf[i] == '\n') {
+                    line.append(new String(buf, start, i + 1 - start,
+                            StandardCharsets.ISO_8859_1));
+                    result.add(line.toString());
+                    line.setLength(0);
+                    start = i + 1;
+                }
+            }
+            line.append(new String(buf, start, n - start,
+                    StandardCharsets.ISO_8859_1));
+        }
+        if (line.length() > 0) {
+            result.add(line.toString());
+        }
+        return result;
+    }
+
+    /** Return the lines of each of TEXTS as ints, equal lines having the
+     * same int in all of them.
+     * @param texts the texts, as lines.
+     * @return the ints of the lines of each text. */
+    @SafeVarargs
+    static int[][] intern(List<String>... texts) {
+        HashMap<String, Integer> ids = new HashMap<>();
+        int[][] result = new int[texts.length][];
+        for (int t = 0; t < texts.length; t += 1) {
+            result[t] = new int[texts[t].size()];
+            for (int i = 0; i < result[t].length; i += 1) {
+                Integer id = ids.putIfAbsent(texts[t].get(i), ids.size());
+                result[t][i] = id == null ? ids.size() - 1 : id;
+            }
+        }
+        return result;
+    }
+
+    /** Return a longest common subsequence of A and B, as the line of B
+     * matched with each line of A.
+     * @param a the lines of the old text.
+     * @param b the lines of the new text.
+     * @return for each line of A, the index of its line in B, -1 if it is
+     * not matched. */
+    static int[] match(int[] a, int[] b) {
+        int[] result = new int[a.length];
+        Arrays.fill(result, -1);
+        int max = a.length + b.length + 1;
+        new Diff(a, b, result, 2 * max + 2).compare(0, a.length, 0,
+                b.length);
+        return result;
+    }
+
+    /** A search of the matches of A and B into RESULT, with vectors of
+     * SIZE ints.
+     * @param a the lines of the old text.
+     * @param b the lines of the new text.
+     * @param result the matches to fill.
+     * @param size the size of the vectors. */
+    private Diff(int[] a, int[] b, int[] result, int size) {
+        _a = a;
+        _b = b;
+        _result = result;
+        _forward = new int[size];
+        _backward = new int[size];
+        _offset = size / 2;
+    }
+
+    /** Match the lines of A from ALO to AHI with the lines of B from BLO
+     * to BHI.
+     * @param aLo the first line of A.
+     * @param aHi the line after the last one of A.
+     * @param bLo the first line of B.
+     * @param bHi the line after the last one of B. */
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && _a[aLo] == _b[bLo]) {
+            _result[aLo] = bLo;
+            aLo += 1;
+            bLo += 1;
+        }
+        while (aLo < aHi && bLo < bHi && _a[aHi - 1] == _b[bHi - 1]) {
+            aHi -= 1;
+            bHi -= 1;
+            _result[aHi] = bHi;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            return;
+        }
+        int[] snake = middleSnake(aLo, aHi, bLo, bHi);
+        for (int x = snake[0], y = snake[1]; x < snake[2]; x += 1, y += 1) {
+            _result[x] = y;
+        }
+        compare(aLo, snake[0], bLo, snake[1]);
+        compare(snake[2], aHi, snake[3], bHi);
+    }
+
+    /** Return the middle snake of the shortest edit script between the
+     * lines of A from ALO to AHI and the lines of B from BLO to BHI, which
+     * differ in their first and in their last lines.
+     * @param aLo the first line of A.
+     * @param aHi the line after the last one of A.
+     * @param bLo the first line of B.
+     * @param bHi the line after the last one of B.
+     * @return the start in A, the start in B, the end in A and the end
+     * in B of the snake. */
+    private int[] middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int[] vf = _forward;
+        int[] vb = _backward;
+        int off = _offset;
+        vf[off + 1] = 0;
+        vb[off + 1] = 0;
+        for (int d = 0; d <= (n + m + 1) / 2; d += 1) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && vf[off + k - 1]
+                        < vf[off + k + 1]) ? vf[off + k + 1]
+                        : vf[off + k - 1] + 1;
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && _a[aLo + x] == _b[bLo + y]) {
+                    x += 1;
+                    y += 1;
+                }
+                vf[off + k] = x;
+                if (odd && k >= delta - (d - 1) && k <= delta + (d - 1)
+                        && x + vb[off + delta - k] >= n) {
+                    return new int[] {aLo + x0, bLo + y0, aLo + x, bLo + y};
+                }
+            }
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && vb[off + k - 1]
+                        < vb[off + k + 1]) ? vb[off + k + 1]
+                        : vb[off + k - 1] + 1;
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m
+                        && _a[aHi - 1 - x] == _b[bHi - 1 - y]) {
+                    x += 1;
+                    y += 1;
+                }
+                vb[off + k] = x;
+                if (!odd && delta - k >= -d && delta - k <= d
+                        && x + vf[off + delta - k] >= n) {
+                    return new int[] {aHi - x, bHi - y, aHi - x0, bHi - y0};
+                }
+            }
+        }
+        throw new IllegalStateException("no middle snake");
+    }
+
+    /** The size of the buffer used to read a blob. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The lines of the old text. */
+    private final int[] _a;
+    /** The lines of the new text. */
+    private final int[] _b;
+    /** The line of B matched with each line of A. */
+    private final int[] _result;
+    /** The furthest x reached on each diagonal from the start. */
+    private final int[] _forward;
+    /** The furthest x reached on each diagonal from the end. */
+    private final int[] _backward;
+    /** The index of diagonal 0 in the vectors. */
+    private final int _offset;
+
+}
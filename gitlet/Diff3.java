@@ -0,0 +1,121 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/** Three-way merges of texts, line by line, like diff3. The base is
+ *  diffed with each side (see Diff), and the base lines matched in both
+ *  are the points where the three texts agree. Between two such points,
+ *  a chunk changed on one side only takes that side, a chunk changed the
+ *  same way on both sides takes either, and a chunk changed differently
+ *  is a conflict, written between markers with only its own lines.
+ *  @author Xiaoyi Zhu
+ */
+class Diff3 {
+
+    /** Write the merge of OURS and THEIRS, both made from BASE, into OUT.
+     * @param base the lines of the common ancestor.
+     * @param ours the lines of the head.
+     * @param theirs the lines of the given branch.
+     * @param out where the merged text goes.
+     * @return whether there was a conflict. */
+    static boolean merge(List<String> base, List<String> ours,
+                         List<String> theirs, Writer out) throws IOException {
+        int[][] ids = Diff.intern(base, ours, theirs);
+        int[] toOurs = Diff.match(ids[0], ids[1]);
+        int[] toTheirs = Diff.match(ids[0], ids[2]);
+        boolean conflict = false;
+        int b = 0;
+        int o = 0;
+        int t = 0;
+        for (int i = 0; i <= base.size(); i += 1) {
+            boolean sync = i == base.size()
+                    || (toOurs[i] >= 0 && toTheirs[i] >= 0);
+            if (!sync) {
+                continue;
+            }
+            int oEnd = i == base.size() ? ours.size() : toOurs[i];
+            int tEnd = i == base.size() ? theirs.size() : toTheirs[i];
+            conflict |= chunk(ids, b, i, o, oEnd, t, tEnd, ours, theirs,
+                    out);
+            if (i < base.size()) {
+                out.write(base.get(i));
+            }
+            b = i + 1;
+            o = oEnd + 1;
+            t = tEnd + 1;
+        }
+        return conflict;
+    }
+
+    /** Write the merge of one chunk into OUT: the base lines from BLO to
+     * BHI, which became the lines of OURS from OLO to OHI and the lines
+     * of THEIRS from TLO to THI.
+     * @param ids the ints of the lines of base, ours and theirs.
+     * @param bLo the first line in the base.
+     * @param bHi the line after the last one in the base.
+     * @param oLo the first line in ours.
+     * @param oHi the line after the last one in ours.
+     * @param tLo the first line in theirs.
+     * @param tHi the line after the last one in theirs.
+     * @param ours the lines of the head.
+     * @param theirs the lines of the given branch.
+     * @param out where the merged text goes.
+     * @return whether the chunk is a conflict. */
+    private static boolean chunk(int[][] ids, int bLo, int bHi, int oLo,
+                                 int oHi, int tLo, int tHi,
+                                 List<String> ours, List<String> theirs,
+                                 Writer out) throws IOException {
+        if (same(ids[0], bLo, bHi, ids[2], tLo, tHi)) {
+            write(out, ours, oLo, oHi);
+            return false;
+        }
+        if (same(ids[0], bLo, bHi, ids[1], oLo, oHi)
+                || same(ids[1], oLo, oHi, ids[2], tLo, tHi)) {
+            write(out, theirs, tLo, tHi);
+            return false;
+        }
+        out.write("<<<<<<< HEAD\n");
+        write(out, ours, oLo, oHi);
+        out.write("=======\n");
+        write(out, theirs, tLo, tHi);
+        out.write(">>>>>>>\n");
+        return true;
+    }
+
+    /** Return whether the ints of A from ALO to AHI are those of B from
+     * BLO to BHI.
+     * @param a some lines.
+     * @param aLo the first line of A.
+     * @param aHi the line after the last one of A.
+     * @param b other lines.
+     * @param bLo the first line of B.
+     * @param bHi the line after the last one of B.
+     * @return true if they are the same. */
+    private static boolean same(int[] a, int aLo, int aHi, int[] b, int bLo,
+                                int bHi) {
+        if (aHi - aLo != bHi - bLo) {
+            return false;
+        }
+        for (int i = 0; i < aHi - aLo; i += 1) {
+            if (a[aLo + i] != b[bLo + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Write the LINES from LO to HI into OUT.
+     * @param out where they go.
+     * @param lines the lines.
+     * @param lo the first line.
+     * @param hi the line after the last one. */
+    private static void write(Writer out, List<String> lines, int lo,
+                              int hi) throws IOException {
+        for (int i = lo; i < hi; i += 1) {
+            out.write(lines.get(i));
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** Lazy walks of the history for log and global-log, newest commit first.
+ *  Each commit is read from the store only when the walk reaches it, so
+ *  printing the last few commits costs the same in any repository. The
+ *  global walk reads the commit list backward, a block at a time: the list
+ *  is appended to as commits are made, so read from its end it is already
+ *  in time order.
+ *  @author Xiaoyi Zhu
+ */
+class History {
+
+    /** Return the commits on the first-parent chain from the commit ID.
+     * @param id the sha-1 of the newest commit.
+     * @return the commits, newest first. */
+    static Iterator<Commit> firstParents(String id) {
+        return new Iterator<Commit>() {
+            @Override
+            public boolean hasNext() {
+                return _next != null;
+            }
+
+            @Override
+            public Commit next() {
+                if (_next == null) {
+                    throw new NoSuchElementException();
+                }
+                Commit result = ObjectStore.readCommit(_next);
+                _next = result.getParentId();
+                return result;
+            }
+
+            /** The id of the next commit. */
+            private String _next = id;
+        };
+    }
+
+    /** Return all the commits, in the reverse of the order they were made,
+     * starting with those not in the commit list yet.
+     * @return the commits, newest first. */
+    static Iterator<Commit> newestFirst() {
+        ArrayDeque<String> pending = new ArrayDeque<>();
+        for (Commit com : ObjectStore.pending()) {
+            pending.push(com.getSha());
+        }
+        return new Iterator<Commit>() {
+            @Override
+            public boolean hasNext() {
+                if (_ids.isEmpty() && _end > 0) {
+                    readBlock();
+                }
+                return !_ids.isEmpty();
+            }
+
+            @Override
+            public Commit next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return ObjectStore.readCommit(_ids.pop());
+            }
+
+            /** Read the ids of the block of the commit list before END. */
+            private void readBlock() {
+                int start = (int) Math.max(0, _end - BLOCK * LINE);
+                byte[] buf = new byte[(int) (_end - start)];
+                try (RandomAccessFile f = new RandomAccessFile(
+                        ObjectStore.COMMIT_LIST, "r")) {
+                    f.seek(start);
+                    f.readFully(buf);
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+                for (int i = 0; i < buf.length; i += LINE) {
+                    _ids.push(new String(buf, i, Utils.UID_LENGTH,
+                            StandardCharsets.US_ASCII));
+                }
+                _end = start;
+            }
+
+            /** The ids read but not walked yet, newest on top. */
+            private final ArrayDeque<String> _ids = pending;
+            /** The end of the part of the commit list not read yet. */
+            private long _end = ObjectStore.COMMIT_LIST.length()
+                    / LINE * LINE;
+        };
+    }
+
+    /** The options of a log: how many commits to show, and between which
+     * times. */
+    static class Limits {
+
+        /** Return the limits given by ARGS, which are "-n COUNT",
+         * "--since TIME" and "--until TIME" in any order. A TIME is a date
+         * like 2019-12-01, or a date and time like 2019-12-01T18:30:00, in
+         * the local time zone; a date alone is the start of that day for
+         * --since and the end of it for --until.
+         * @param args the options.
+         * @return the limits, null if ARGS are not valid. */
+        static Limits parse(String[] args) {
+            Limits result = new Limits();
+            if (args.length % 2 != 0) {
+                return null;
+            }
+            try {
+                for (int i = 0; i < args.length; i += 2) {
+                    String value = args[i + 1];
+                    switch (args[i]) {
+                    case "-n":
+                        result._count = Integer.parseInt(value);
+                        if (result._count < 0) {
+                            return null;
+                        }
+                        break;
+                    case "--since":
+                        result._since = time(value, false);
+                        break;
+                    case "--until":
+                        result._until = time(value, true);
+                        break;
+                    default:
+                        return null;
+                    }
+                }
+            } catch (NumberFormatException | DateTimeParseException excp) {
+                return null;
+            }
+            return result;
+        }
+
+        /** Return the seconds since the epoch of the TIME.
+         * @param time a date, or a date and time.
+         * @param end whether a date alone means the end of the day.
+         * @return the seconds. */
+        private static long time(String time, boolean end) {
+            ZoneId zone = ZoneId.systemDefault();
+            if (time.indexOf('T') >= 0) {
+                return LocalDateTime.parse(time).atZone(zone)
+                        .toEpochSecond();
+            }
+            LocalDate day = LocalDate.parse(time);
+            if (end) {
+                return day.plusDays(1).atStartOfDay(zone).toEpochSecond()
+                        - 1;
+            }
+            return day.atStartOfDay(zone).toEpochSecond();
+        }
+
+        /** Return the most commits to show.
+         * @return the count. */
+        int count() {
+            return _count;
+        }
+
+        /** Return whether the commit COM is too new to show.
+         * @param com a commit.
+         * @return true if it was made after --until. */
+        boolean tooNew(Commit com) {
+            return com.getTimestamp() > _until;
+        }
+
+        /** Return whether the commit COM is too old to show. Walks are
+         * newest first, so no commit after it is shown either.
+         * @param com a commit.
+         * @return true if it was made before --since. */
+        boolean tooOld(Commit com) {
+            return com.getTimestamp() < _since;
+        }
+
+        /** The most commits to show. */
+        private int _count = Integer.MAX_VALUE;
+        /** The oldest time to show, in seconds. */
+        private long _since = Long.MIN_VALUE;
+        /** The newest time to show, in seconds. */
+        private long _until = Long.MAX_VALUE;
+    }
+
+    /** The length of a line of the commit list: an id and a '\n'. */
+    private static final int LINE = Utils.UID_LENGTH + 1;
+    /** The number of ids read from the commit list at once. */
+    private static final int BLOCK = 256;
+
+}
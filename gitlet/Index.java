@@ -0,0 +1,272 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/** The stat cache of the working directory, kept in .gitlet/index. For
+ *  every file whose blob id has been computed, it holds the stat data of
+ *  the file at that time (modification time, size and file key, which is
+ *  the device and inode where the system has them) and the id, so a file
+ *  whose stat data has not changed is never read again.
+ *  A file changed again within the same clock tick as it was hashed keeps
+ *  the same stat data. Like git, an entry is only trusted if the file was
+ *  last modified before the index was written, the others are "racy" and
+ *  hashed again each time.
+ *  @author Xiaoyi Zhu
+ */
+class Index {
+
+    /** The file holding the index. */
+    static final File INDEX_FILE = new File(".gitlet/index");
+
+    /** Return the blob id of the file at PATH, from the index if its stat
+     * data has not changed, otherwise by hashing it.
+     * @param path the path of the file, relative to the working directory.
+     * @return the sha-1 of its content as a blob, null if there is no such
+     * file. */
+    static String blobId(String path) {
+        BasicFileAttributes attrs = stat(new File(path));
+        if (attrs == null) {
+            if (entries().remove(path) != null) {
+                _changed = true;
+            }
+            return null;
+        }
+        return blobId(path, attrs);
+    }
+
+    /** Return the blob id of the file at PATH whose stat data, just read,
+     * is ATTRS. It is safe to call from many threads at once.
+     * @param path the path of the file, relative to the working directory.
+     * @param attrs the stat data of the file.
+     * @return the sha-1 of its content as a blob. */
+    static String blobId(String path, BasicFileAttributes attrs) {
+        Entry old = entries().get(path);
+        if (trusted(old, attrs)) {
+            return old._id;
+        }
+        String id = Blobs.hash(new File(path));
+        put(path, attrs, id);
+        return id;
+    }
+
+    /** Store the file at PATH as a blob, unless the index says the store
+     * has it already, and return its id. The stat data is read before the
+     * file, so a change made while it is read shows in the next stat.
+     * @param path the path of the file, relative to the working directory.
+     * @return the sha-1 of its content as a blob, null if there is no such
+     * file. */
+    static String store(String path) {
+        BasicFileAttributes attrs = stat(new File(path));
+        if (attrs == null) {
+            return blobId(path);
+        }
+        Entry old = entries().get(path);
+        if (trusted(old, attrs) && ObjectStore.contains(old._id)) {
+            return old._id;
+        }
+        String id = ObjectStore.writeFile(new File(path));
+        put(path, attrs, id);
+        return id;
+    }
+
+    /** Record that the file at PATH, just written, holds the blob ID.
+     * @param path the path of the file, relative to the working directory.
+     * @param id the sha-1 of the blob. */
+    static void record(String path, String id) {
+        BasicFileAttributes attrs = stat(new File(path));
+        if (attrs != null) {
+            put(path, attrs, id);
+        }
+    }
+
+    /** Write the index back to its file, if it changed. The entries are
+     * then as if read from the file, so a daemon running the next command
+     * treats the racy ones the same as a new process. */
+    static void save() {
+        if (!_changed) {
+            return;
+        }
+        try {
+            Path temp = Files.createTempFile(INDEX_FILE.getParentFile()
+                    .toPath(), "tmp-", ".index");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(_entries.size());
+                for (Entry entry : _entries.values()) {
+                    out.writeUTF(entry._path);
+                    out.writeLong(entry._mtime);
+                    out.writeLong(entry._size);
+                    out.writeInt(entry._key);
+                    out.write(Utils.fromHex(entry._id));
+                }
+            }
+            Files.move(temp, INDEX_FILE.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            _changed = false;
+            _stamp = mtime(stat(INDEX_FILE));
+            for (Entry entry : _entries.values()) {
+                entry._fresh = false;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Forget the entries, so they are read from the file again. */
+    static synchronized void reset() {
+        _entries = null;
+        _changed = false;
+    }
+
+    /** Return whether the entry OLD holds the id of a file whose stat
+     * data is ATTRS: it matches them and is not racy.
+     * @param old the entry, or null.
+     * @param attrs the stat data of the file now.
+     * @return true if its id can be used without reading the file. */
+    private static boolean trusted(Entry old, BasicFileAttributes attrs) {
+        return old != null && old.matches(attrs)
+                && (old._fresh || old._mtime < _stamp);
+    }
+
+    /** Put the entry of the file at PATH with stat data ATTRS and blob ID.
+     * @param path the path of the file.
+     * @param attrs its stat data.
+     * @param id the sha-1 of its content. */
+    private static void put(String path, BasicFileAttributes attrs,
+                            String id) {
+        Entry entry = new Entry(path, mtime(attrs), attrs.size(),
+                Objects.hashCode(attrs.fileKey()), id);
+        entry._fresh = true;
+        entries().put(path, entry);
+        _changed = true;
+    }
+
+    /** Return the stat data of FILE, not following links.
+     * @param file the file.
+     * @return its attributes, null if it is not a regular file. */
+    static BasicFileAttributes stat(File file) {
+        Trace.statted();
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file.toPath(),
+                    BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            return attrs.isRegularFile() ? attrs : null;
+        } catch (NoSuchFileException excp) {
+            return null;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the modification time in ATTRS.
+     * @param attrs the stat data of a file.
+     * @return the time in nanoseconds since the epoch. */
+    private static long mtime(BasicFileAttributes attrs) {
+        return attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    /** Return the entries, read from the file the first time.
+     * @return the entries, saved by path. */
+    private static synchronized ConcurrentSkipListMap<String, Entry>
+        entries() {
+        if (_entries != null) {
+            return _entries;
+        }
+        _entries = new ConcurrentSkipListMap<>();
+        BasicFileAttributes attrs = stat(INDEX_FILE);
+        if (attrs == null) {
+            return _entries;
+        }
+        _stamp = mtime(attrs);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(INDEX_FILE.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                _changed = true;
+                return _entries;
+            }
+            int count = in.readInt();
+            byte[] id = new byte[Utils.UID_LENGTH / 2];
+            for (int i = 0; i < count; i += 1) {
+                String path = in.readUTF();
+                long mtime = in.readLong();
+                long size = in.readLong();
+                int key = in.readInt();
+                in.readFully(id);
+                _entries.put(path, new Entry(path, mtime, size, key,
+                        Utils.toHex(id)));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return _entries;
+    }
+
+    /** The stat data and blob id of one file. */
+    private static class Entry {
+
+        /** An entry for the file at PATH.
+         * @param path the path of the file.
+         * @param mtime its modification time in nanoseconds.
+         * @param size its size in bytes.
+         * @param key the hash of its file key.
+         * @param id the sha-1 of its content. */
+        Entry(String path, long mtime, long size, int key, String id) {
+            _path = path;
+            _mtime = mtime;
+            _size = size;
+            _key = key;
+            _id = id;
+        }
+
+        /** Return whether ATTRS are the stat data of this entry.
+         * @param attrs the stat data of the file now.
+         * @return true if nothing changed. */
+        boolean matches(BasicFileAttributes attrs) {
+            return _mtime == mtime(attrs) && _size == attrs.size()
+                    && _key == Objects.hashCode(attrs.fileKey());
+        }
+
+        /** The path of the file. */
+        private final String _path;
+        /** The modification time of the file, in nanoseconds. */
+        private final long _mtime;
+        /** The size of the file. */
+        private final long _size;
+        /** The hash of the file key, 0 if there is none. */
+        private final int _key;
+        /** The sha-1 of the content of the file. */
+        private final String _id;
+        /** Whether the file was hashed or written by this command. */
+        private boolean _fresh;
+    }
+
+    /** The first int of the index. */
+    private static final int MAGIC = 0x44495243;
+    /** The version of the format of the index. */
+    private static final int VERSION = 1;
+
+    /** The entries, saved by path, null until first needed. */
+    private static ConcurrentSkipListMap<String, Entry> _entries;
+    /** The modification time of the index file when it was read, in
+     * nanoseconds, entries at least as new are racy. */
+    private static long _stamp;
+    /** Whether the entries changed since they were read. */
+    private static volatile boolean _changed;
+
+}
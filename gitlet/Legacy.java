@@ -0,0 +1,284 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/** Reads the repos gitlet stored by Java serialization, and upgrades the
+ *  oldest of them. Those kept every commit inside the repo, each with the
+ *  blobs of all its files inline, hashed their own way. Their classes had
+ *  the names of the ones now, with other fields, so a stream of them is
+ *  read into the shadow classes below, which have the old fields; any
+ *  other class of gitlet is read into the class now if its fields are the
+ *  same, whatever version it was written with.
+ *  @author Xiaoyi Zhu
+ */
+class Legacy {
+
+    /** The directory the oldest repos wrote every commit into as well. */
+    static final File COMMITS_DIR = new File(".gitlet/commits");
+    /** The directory they wrote the staged blobs into. */
+    static final File STAGING_DIR = new File(".gitlet/staging");
+
+    /** Return the object stored by Java serialization in DATA.
+     * @param data the bytes of the object.
+     * @return the object, of a shadow class if it is of the oldest
+     * layout. */
+    static Object read(byte[] data) {
+        try (ObjectInputStream in = new Input(data)) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the repo DATA made again in the layout of now, if it is of
+     * the oldest layout. Its commits are written into the store in the
+     * order they were made, with their blobs and trees, then the old
+     * directories are deleted; the repo itself is left to the command to
+     * save. Whatever a migration stopped halfway left behind is written
+     * again, since the old repo still holds everything.
+     * @param data the bytes of .gitlet/myrepo.
+     * @return the repo, null if DATA is not of the oldest layout. */
+    static Repo migrate(byte[] data) {
+        if (!Codec.isLegacy(data)) {
+            return null;
+        }
+        Object obj = read(data);
+        if (!(obj instanceof Repo0)) {
+            return null;
+        }
+        Repo0 old = (Repo0) obj;
+        ObjectStore.OBJECTS_DIR.mkdirs();
+        for (File f : new File[] {ObjectStore.COMMIT_LIST,
+            CommitGraph.GRAPH_FILE, MessageIndex.MESSAGES_FILE}) {
+            f.delete();
+        }
+        HashMap<String, String> ids = new HashMap<>();
+        HashMap<String, String> blobIds = new HashMap<>();
+        List<Commit0> commits = new ArrayList<>(old._allCommit.values());
+        commits.sort(Comparator.comparing((Commit0 c) -> c._time,
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+        for (Commit0 com : commits) {
+            migrate(com, old._allCommit, ids, blobIds);
+        }
+        HashMap<String, String> branches = new HashMap<>();
+        for (Map.Entry<String, String> entry : old._allBranch.entrySet()) {
+            branches.put(entry.getKey(), ids.get(entry.getValue()));
+        }
+        Repo result = Repo.migrated(old._head,
+                old._isMerge ? ids.get(old._parentId2) : null, branches,
+                blobIds(old._allStaging, blobIds), old._allUntrack,
+                old._untrackedFile, old._modiList);
+        for (File dir : new File[] {COMMITS_DIR, STAGING_DIR}) {
+            File[] files = dir.listFiles();
+            for (File f : files == null ? new File[0] : files) {
+                f.delete();
+            }
+            dir.delete();
+        }
+        return result;
+    }
+
+    /** Write the old commit COM into the store, after its parents, unless
+     * it is written already.
+     * @param com the old commit.
+     * @param all the old commits, saved by their old sha-1.
+     * @param ids the new sha-1 of the commits written, saved by the old.
+     * @param blobIds the new sha-1 of the blobs written, saved by the
+     * old. */
+    private static void migrate(Commit0 com, Map<String, Commit0> all,
+                                Map<String, String> ids,
+                                Map<String, String> blobIds) {
+        if (ids.containsKey(com._sha)) {
+            return;
+        }
+        for (String parent : new String[] {com._parentId, com._parentId2}) {
+            if (parent != null && all.containsKey(parent)) {
+                migrate(all.get(parent), all, ids, blobIds);
+            }
+        }
+        String treeId = Tree.update(null, blobIds(com._allFiles, blobIds),
+                Collections.emptyList());
+        Commit result = Commit.migrated(com._time, com._message,
+                ids.get(com._parentId),
+                com._fromMerge ? ids.get(com._parentId2) : null, treeId,
+                com._branchName);
+        ObjectStore.writeCommit(result);
+        ids.put(com._sha, result.getSha());
+    }
+
+    /** Write the old blobs FILES into the store, and return their new
+     * sha-1.
+     * @param files the old blobs, saved by file name.
+     * @param blobIds the new sha-1 of the blobs written, saved by the old.
+     * @return the new sha-1 of the blobs, saved by file name. */
+    private static HashMap<String, String> blobIds(
+            Map<String, Blobs0> files, Map<String, String> blobIds) {
+        HashMap<String, String> result = new HashMap<>();
+        for (Map.Entry<String, Blobs0> entry : files.entrySet()) {
+            Blobs0 b = entry.getValue();
+            String id = blobIds.get(b._sha1);
+            if (id == null) {
+                id = Blobs.hash(b._content);
+                ObjectStore.writeBytes(id, b._content);
+                blobIds.put(b._sha1, id);
+            }
+            result.put(entry.getKey(), id);
+        }
+        return result;
+    }
+
+    /** A stream reading the classes of gitlet of any layout stored by Java
+     * serialization. The descriptor of each is replaced by that of a class
+     * here with the same fields, so neither its name nor its version has to
+     * match. */
+    static class Input extends ObjectInputStream {
+
+        /** A stream of the object in DATA.
+         * @param data the bytes of the object. */
+        Input(byte[] data) throws IOException {
+            super(new ByteArrayInputStream(data));
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor()
+            throws IOException, ClassNotFoundException {
+            ObjectStreamClass desc = super.readClassDescriptor();
+            if (!desc.getName().startsWith("gitlet.")) {
+                return desc;
+            }
+            for (Class<?> cls : candidates(desc.getName())) {
+                ObjectStreamClass local = ObjectStreamClass.lookup(cls);
+                if (local != null && sameFields(desc, local)) {
+                    return local;
+                }
+            }
+            return desc;
+        }
+
+        /** Return the classes a class of gitlet written as NAME may be
+         * read into: its shadow class, if it has one, then the class of
+         * that name now, if there is one.
+         * @param name the name of the class written.
+         * @return the classes. */
+        private static List<Class<?>> candidates(String name) {
+            List<Class<?>> result = new ArrayList<>();
+            if (SHADOWS.containsKey(name)) {
+                result.add(SHADOWS.get(name));
+            }
+            try {
+                result.add(Class.forName(name, false,
+                        Legacy.class.getClassLoader()));
+            } catch (ClassNotFoundException excp) {
+                return result;
+            }
+            return result;
+        }
+
+        /** Return whether the classes ONE and TWO have the same serialized
+         * fields.
+         * @param one a descriptor.
+         * @param two another one.
+         * @return true if the names and the types are the same. */
+        private static boolean sameFields(ObjectStreamClass one,
+                                          ObjectStreamClass two) {
+            ObjectStreamField[] a = one.getFields();
+            ObjectStreamField[] b = two.getFields();
+            if (a.length != b.length) {
+                return false;
+            }
+            for (int i = 0; i < a.length; i += 1) {
+                if (!a[i].getName().equals(b[i].getName())
+                        || a[i].getTypeCode() != b[i].getTypeCode()
+                        || (a[i].getTypeString() != null
+                        && !a[i].getTypeString().equals(
+                                b[i].getTypeString()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** The repo of the oldest layout. */
+    private static class Repo0 implements Serializable {
+        /** The version it was written with. */
+        private static final long serialVersionUID = 8998266281442413743L;
+        /** The current branch. */
+        private String _head;
+        /** The second parent of a merge being made. */
+        private String _parentId2;
+        /** Whether a merge is being made. */
+        private boolean _isMerge;
+        /** Every commit, saved by sha-1. */
+        private HashMap<String, Commit0> _allCommit;
+        /** The head of every branch, saved by name. */
+        private HashMap<String, String> _allBranch;
+        /** The staged blobs, saved by file name. */
+        private HashMap<String, Blobs0> _allStaging;
+        /** The files staged for removal. */
+        private LinkedList<String> _allUntrack;
+        /** The untracked files. */
+        private LinkedList<String> _untrackedFile;
+        /** The files modified and not staged. */
+        private LinkedList<String> _modiList;
+    }
+
+    /** A commit of the oldest layout. */
+    private static class Commit0 implements Serializable {
+        /** The version it was written with. */
+        private static final long serialVersionUID = -3670619254005388727L;
+        /** The time, null for the initial commit. */
+        private ZonedDateTime _time;
+        /** The time as printed. */
+        private String _timeS;
+        /** The first parent. */
+        private String _parentId;
+        /** The second parent. */
+        private String _parentId2;
+        /** Whether it is a merge. */
+        private boolean _fromMerge;
+        /** Its sha-1. */
+        private String _sha;
+        /** Its message. */
+        private String _message;
+        /** Its branch. */
+        private String _branchName;
+        /** The blobs of all its files, saved by file name. */
+        private HashMap<String, Blobs0> _allFiles;
+    }
+
+    /** A blob of the oldest layout, hashed over its file name and its
+     * content. */
+    private static class Blobs0 implements Serializable {
+        /** The version it was written with. */
+        private static final long serialVersionUID = 1934310500196368666L;
+        /** The name of its file. */
+        private String _fileName;
+        /** Its content. */
+        private byte[] _content;
+        /** Its content as a String. */
+        private String _contentString;
+        /** Its sha-1. */
+        private String _sha1;
+    }
+
+    /** The shadow classes, saved by the name they were written with. */
+    private static final Map<String, Class<?>> SHADOWS = Map.of(
+            "gitlet.Repo", Repo0.class, "gitlet.Commit", Commit0.class,
+            "gitlet.Blobs", Blobs0.class);
+
+}
@@ -1,8 +1,11 @@
 package gitlet;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
@@ -13,51 +16,146 @@ import java.util.List;
 public class Main {
 
     /** Usage: java gitlet.Main ARGS, where ARGS contains
-     *  <COMMAND> <OPERAND> .... */
+     *  [--trace] <COMMAND> <OPERAND> .... The command is sent to the daemon
+     *  of this directory if one is running (see Daemon), otherwise run
+     *  here. --trace prints what the command spent on stderr (see Trace).
+     */
     public static void main(String... args) {
+        int from = args.length > 0 && args[0].equals(Trace.OPTION) ? 1 : 0;
+        if (args.length > from && args[from].equals("batch")) {
+            String[] batch = Batch.inline(Arrays.copyOfRange(args, from,
+                    args.length));
+            args = Arrays.copyOf(args, from + batch.length);
+            System.arraycopy(batch, 0, args, from, batch.length);
+        }
+        Integer status = Daemon.forward(args);
+        if (status != null) {
+            System.exit(status);
+        }
+        if (args.length > 0 && args[0].equals("daemon")) {
+            Daemon.start(args);
+            return;
+        }
         try {
-            if (args.length == 0) {
-                Utils.message("Please enter a command.");
-                System.exit(0);
-            }
-            if (!VALIDCOMMAND.contains(args[0])) {
-                Utils.message("No command with that name exists.");
-                System.exit(0);
-            }
-            if (!checkNumberOfOperand(args)) {
-                Utils.message("Incorrect operands.");
-                System.exit(0);
-            }
-            if (args[0].equals("init") && checkInit()) {
-                Utils.message("A Gitlet version-control system already"
-                        + " exists in the current directory.");
-                System.exit(0);
-            }
-            if (!args[0].equals("init")
-                    && VALIDCOMMAND.contains(args[0]) && !checkInit()) {
-                Utils.message("Not in an initialized Gitlet directory.");
-                System.exit(0);
-            }
-            if (args.length == 1 && args[0].equals("init") && !checkInit()) {
-                repo = new Repo();
-                File hist = new File(".gitlet/myrepo");
-                Utils.writeObject(hist, repo);
-            }
-            if (checkInit()) {
-                repo = getHist();
-                if (args.length == 1) {
-                    callMethod1(args[0]);
-                } else {
-                    callMethod2(args);
-                }
-                File hist = new File(".gitlet/myrepo");
-                Utils.writeObject(hist, repo);
-            }
+            run(args);
         } catch (GitletException e) {
             System.exit(0);
         }
     }
 
+    /** Run the command ARGS and save the repo, throwing a GitletException
+     * where it stops early. A batch saves the repo itself.
+     * @param args the command and its operands, after --trace if it is
+     * traced. */
+    static void run(String... args) {
+        boolean trace = args.length > 0 && args[0].equals(Trace.OPTION);
+        if (trace) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        Trace.start(args);
+        boolean stopped = true;
+        try {
+            if (args.length > 0 && args[0].equals("batch")) {
+                Batch.run(args);
+            } else if (execute(args)) {
+                save();
+            }
+            stopped = false;
+        } finally {
+            Trace.finish(trace, stopped);
+        }
+    }
+
+    /** Run the command ARGS without saving the repo, throwing a
+     * GitletException where it stops early. The repo is read the first
+     * time only, so a daemon or a batch keeps it.
+     * @param args the command and its operands.
+     * @return whether the command ran in a repository. */
+    static boolean execute(String... args) {
+        if (args.length == 0) {
+            Utils.message("Please enter a command.");
+            throw new GitletException();
+        }
+        if (!VALIDCOMMAND.contains(args[0])) {
+            Utils.message("No command with that name exists.");
+            throw new GitletException();
+        }
+        if (!checkNumberOfOperand(args)) {
+            Utils.message("Incorrect operands.");
+            throw new GitletException();
+        }
+        if (args[0].equals("init") && checkInit()) {
+            Utils.message("A Gitlet version-control system already"
+                    + " exists in the current directory.");
+            throw new GitletException();
+        }
+        if (!args[0].equals("init")
+                && VALIDCOMMAND.contains(args[0]) && !checkInit()) {
+            Utils.message("Not in an initialized Gitlet directory.");
+            throw new GitletException();
+        }
+        if (args.length == 1 && args[0].equals("init") && !checkInit()) {
+            repo = new Repo();
+            save();
+        }
+        if (!checkInit()) {
+            return false;
+        }
+        if (repo == null) {
+            long start = Trace.begin();
+            repo = getHist(args[0].equals("migrate"));
+            Trace.end(Trace.Phase.LOAD, start);
+        }
+        long start = Trace.begin();
+        try {
+            if (args.length == 1) {
+                callMethod1(args[0]);
+            } else {
+                callMethod2(args);
+            }
+        } finally {
+            Trace.end(Trace.Phase.EXECUTE, start);
+        }
+        return true;
+    }
+
+    /** Write the repo and the index, each replacing its file at once,
+     * after the commits made since the last save are added to the commit
+     * list and the indexes of commits. */
+    static void save() {
+        long start = Trace.begin();
+        ObjectStore.flush();
+        try {
+            Path temp = Files.createTempFile(HIST.getParentFile().toPath(),
+                    "tmp-", ".repo");
+            Files.write(temp, repo.encode());
+            Files.move(temp, HIST.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        Index.save();
+        Trace.end(Trace.Phase.SAVE, start);
+    }
+
+    /** Return the state of the repo, to be put back by restore().
+     * @return the encoded repo, null if it is not read yet. */
+    static byte[] snapshot() {
+        return repo == null ? null : repo.encode();
+    }
+
+    /** Put back the state of the repo SNAPSHOT.
+     * @param snapshot an encoded repo from snapshot(). */
+    static void restore(byte[] snapshot) {
+        repo = snapshot == null ? null : Codec.decode(snapshot, Repo.class);
+    }
+
+    /** Forget the repo, so the next command reads it again. */
+    static void reset() {
+        repo = null;
+    }
+
     /** Check the number of operands.
      * @param command commands from input.
      * @return whether it is valid. */
@@ -66,6 +164,12 @@ public class Main {
         if (command[0].equals("checkout") || command[0].equals("commit")) {
             return true;
         }
+        if (command[0].equals("log") || command[0].equals("global-log")) {
+            return true;
+        }
+        if (command[0].equals("config") || command[0].equals("find")) {
+            return num == 2 || num == 3;
+        }
         return (num == 1 || !ONEOPERAND.contains(command[0]))
                 && (num == 2 || !TWOOPERAND.contains(command[0])) && num < 4;
     }
@@ -82,17 +186,28 @@ public class Main {
         switch (command) {
         case "commit" :
             Utils.message("Please enter a commit message.");
-            System.exit(0);
-            break;
+            throw new GitletException();
         case "log" :
-            repo.log(repo.getHead());
+            repo.log(new String[0]);
             break;
         case "global-log" :
-            repo.goballog();
+            repo.goballog(new String[0]);
             break;
         case "status" :
             repo.status();
             break;
+        case "repack" :
+            repo.repack();
+            break;
+        case "reindex" :
+            repo.reindex();
+            break;
+        case "migrate" :
+            repo.migrate();
+            break;
+        case "diff" :
+            repo.diff(null, null);
+            break;
         default:
         }
     }
@@ -111,7 +226,11 @@ public class Main {
             repo.rm(command[1]);
             break;
         case "find" :
-            repo.find(command[1]);
+            if (command.length == 3) {
+                repo.find(command[1], command[2]);
+            } else {
+                repo.find(command[1]);
+            }
             break;
         case "branch" :
             repo.branch(command[1]);
@@ -125,7 +244,7 @@ public class Main {
                 repo.checkout3(command[1]);
             } else {
                 Utils.message("Incorrect operands.");
-                System.exit(0);
+                throw new GitletException();
             }
             break;
         case "reset" :
@@ -137,27 +256,62 @@ public class Main {
         case "merge" :
             repo.merge(command[1]);
             break;
+        case "config" :
+            repo.config(command[1], command.length == 3 ? command[2] : null);
+            break;
+        case "diff" :
+            repo.diff(command[1], command.length == 3 ? command[2] : null);
+            break;
+        case "log" :
+            repo.log(Arrays.copyOfRange(command, 1, command.length));
+            break;
+        case "global-log" :
+            repo.goballog(Arrays.copyOfRange(command, 1, command.length));
+            break;
         default:
         }
     }
 
-    /** recover the status from last commit.
+    /** recover the status from last commit. A repo this version cannot
+     * read stops the command with a message rather than a stack trace:
+     * one stored by Java serialization is to be migrated, any other one is
+     * not a repo of gitlet, or of a newer one. A repo of the oldest layout
+     * is made again when MIGRATING.
+     * @param migrating whether the command is migrate.
      * @return get the history from this repo. */
-    private static Repo getHist() {
-        File hist = new File(".gitlet/myrepo");
-        return Utils.readObject(hist, Repo.class);
+    private static Repo getHist(boolean migrating) {
+        byte[] data = Utils.readContents(HIST);
+        Repo migrated = migrating ? Legacy.migrate(data) : null;
+        if (migrated != null) {
+            return migrated;
+        }
+        try {
+            return Codec.decode(data, Repo.class);
+        } catch (IllegalArgumentException excp) {
+            if (Codec.isLegacy(data)) {
+                Utils.message("This repository is in an older format; run "
+                        + "\"java gitlet.Main migrate\" to upgrade it.");
+            } else {
+                Utils.message("Unsupported repository format.");
+            }
+            throw new GitletException();
+        }
     }
 
+    /** The file holding the repo. */
+    private static final File HIST = new File(".gitlet/myrepo");
+
     /** Array of valid commands. */
     private static final List<String> VALIDCOMMAND =
             new LinkedList<>(Arrays.asList("init", "add", "commit",
             "rm", "log", "global-log", "find", "status", "checkout", "branch",
-            "rm-branch", "reset", "merge"));
+            "rm-branch", "reset", "merge", "config", "repack", "diff",
+            "reindex", "migrate"));
 
     /** Array of valid commands requires one operand. */
     private static final List<String> ONEOPERAND =
-            new LinkedList<>(Arrays.asList("init", "log", "global-log",
-                    "status", "commit"));
+            new LinkedList<>(Arrays.asList("init", "status", "commit",
+                    "repack", "reindex", "migrate"));
 
     /** Array of valid commands requires two operand. */
     private static final List<String> TWOOPERAND =
@@ -0,0 +1,703 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/** An inverted index of the commit messages, for find. The messages are
+ *  kept in .gitlet/messages, one record per commit in the order of the
+ *  commit list: the id of the commit, the length of its message and the
+ *  message in UTF-8. Each new commit is appended there once the commit
+ *  list holds it, and looked up in memory until then. The index is a run
+ *  of segments in .gitlet/message-index, each of the records from one
+ *  offset of the messages to another and named by them, which are never
+ *  changed once written. A segment maps the hash of each term of a
+ *  message (the whole message, and each of its words in lower case) to
+ *  the offsets of the records holding it. The terms are sorted by hash, so
+ *  a lookup is a binary search in each mapped segment. Records after the
+ *  last segment are scanned on each lookup, and made into a new segment
+ *  once there are more than TAIL_LIMIT bytes of them. The newest segments
+ *  are then merged while they are about the same size, as long as neither
+ *  covers more than MERGE_LIMIT bytes, so a commit never costs more than
+ *  merging a few of those, however long the history is; reindex makes
+ *  them one again. A hash only finds candidates, and every one is checked
+ *  against its message.
+ *  @author Xiaoyi Zhu
+ */
+class MessageIndex {
+
+    /** The file holding the messages. */
+    static final File MESSAGES_FILE = new File(".gitlet/messages");
+    /** The directory holding the segments of the index. */
+    static final File INDEX_DIR = new File(".gitlet/message-index");
+
+    /** Return the ids of the commits whose message is MESSAGE.
+     * @param message the message.
+     * @return the sha-1 of the commits, in the order they were made. */
+    static List<String> exact(String message) {
+        return find(hash(EXACT, message), message::equals);
+    }
+
+    /** Return the ids of the commits whose message has the word WORD, in
+     * any case.
+     * @param word the word.
+     * @return the sha-1 of the commits, in the order they were made. */
+    static List<String> word(String word) {
+        String lower = lower(word);
+        List<String> words = words(lower);
+        if (words.size() != 1 || !words.get(0).equals(lower)) {
+            return new ArrayList<>();
+        }
+        return find(hash(WORD, lower),
+            msg -> words(lower(msg)).contains(lower));
+    }
+
+    /** Return the ids of the commits whose message contains TEXT. The
+     * candidates are those holding the rarest word of TEXT that is not cut
+     * by its ends, so a TEXT within a single word is found by a scan of
+     * all the messages.
+     * @param text the text.
+     * @return the sha-1 of the commits, in the order they were made. */
+    static List<String> grep(String text) {
+        List<String> words = words(lower(text));
+        int from = startsWord(text, 0) ? 1 : 0;
+        int to = words.size();
+        if (startsWord(text, text.length() - 1)) {
+            to -= 1;
+        }
+        Long term = null;
+        int best = Integer.MAX_VALUE;
+        for (int i = from; i < to; i += 1) {
+            long hash = hash(WORD, words.get(i));
+            int count = 0;
+            for (Segment seg : segments()) {
+                int at = seg.find(hash);
+                count += at < 0 ? 0 : seg.count(at);
+            }
+            if (count < best) {
+                best = count;
+                term = hash;
+            }
+        }
+        return find(term, msg -> msg.contains(text));
+    }
+
+    /** Append the messages of the new commits COMMITS, which are the last
+     * of the commit list, indexing them if too many messages are not in
+     * the index.
+     * @param commits the commits. */
+    static void add(List<Commit> commits) {
+        if (!MESSAGES_FILE.isFile()) {
+            reindex();
+            return;
+        }
+        for (Commit com : commits) {
+            append(com.getSha(), com.getMessage());
+        }
+        refresh();
+    }
+
+    /** Append the record of the commit ID with the message MESSAGE to the
+     * messages, leaving it out of the index.
+     * @param id the sha-1 of the commit.
+     * @param message its message. */
+    static void append(String id, String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(RECORD + bytes.length);
+        record.put(Utils.fromHex(id)).putInt(bytes.length).put(bytes);
+        record.flip();
+        try (FileChannel ch = FileChannel.open(MESSAGES_FILE.toPath(),
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            PackFile.writeFully(ch, record);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        _messages = null;
+    }
+
+    /** Write the messages of all the commits again from the commit list,
+     * and index all of them in one segment. */
+    static void reindex() {
+        try {
+            Path temp = Files.createTempFile(MESSAGES_FILE.getParentFile()
+                    .toPath(), "tmp-", ".msg");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MESSAGES_MAGIC);
+                out.writeInt(VERSION);
+                List<String> ids = ObjectStore.commitIds();
+                for (String id : ids.subList(0, ObjectStore.saved())) {
+                    byte[] message = ObjectStore.readCommit(id).getMessage()
+                            .getBytes(StandardCharsets.UTF_8);
+                    out.write(Utils.fromHex(id));
+                    out.writeInt(message.length);
+                    out.write(message);
+                }
+            }
+            Files.move(temp, MESSAGES_FILE.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        _messages = null;
+        _segments = null;
+        if (INDEX_DIR.isFile()) {
+            INDEX_DIR.delete();
+        }
+        File[] files = INDEX_DIR.listFiles();
+        for (File f : files == null ? new File[0] : files) {
+            f.delete();
+        }
+        build();
+    }
+
+    /** Index the messages not in the index if there are more than
+     * TAIL_LIMIT bytes of them. */
+    static void refresh() {
+        if (messages().limit() - indexed() > TAIL_LIMIT) {
+            build();
+        }
+    }
+
+    /** Return the ids of the commits whose message passes TEST, among
+     * those holding the term TERM and those not indexed yet, the pending
+     * ones of ObjectStore included.
+     * @param term the hash of the term, null to check every message.
+     * @param test the check of a message.
+     * @return the sha-1 of the commits, in the order they were made. */
+    private static List<String> find(Long term, Predicate<String> test) {
+        refresh();
+        MappedByteBuffer msgs = messages();
+        List<String> result = new ArrayList<>();
+        int tail = HEADER;
+        if (term != null) {
+            for (Segment seg : segments()) {
+                int at = seg.find(term);
+                for (int i = 0; at >= 0 && i < seg.count(at); i += 1) {
+                    check(msgs, seg.offset(at, i), test, result);
+                }
+            }
+            tail = indexed();
+        }
+        while (tail < msgs.limit()) {
+            check(msgs, tail, test, result);
+            tail += RECORD + msgs.getInt(tail + ID_SIZE);
+        }
+        for (Commit com : ObjectStore.pending()) {
+            if (test.test(com.getMessage())) {
+                result.add(com.getSha());
+            }
+        }
+        return result;
+    }
+
+    /** Add the id of the record at OFFSET in MSGS to RESULT if its message
+     * passes TEST.
+     * @param msgs the mapped messages.
+     * @param offset the offset of the record.
+     * @param test the check of a message.
+     * @param result the ids found. */
+    private static void check(ByteBuffer msgs, int offset,
+                              Predicate<String> test, List<String> result) {
+        byte[] message = new byte[msgs.getInt(offset + ID_SIZE)];
+        msgs.get(offset + RECORD, message);
+        if (test.test(new String(message, StandardCharsets.UTF_8))) {
+            byte[] id = new byte[ID_SIZE];
+            msgs.get(offset, id);
+            result.add(Utils.toHex(id));
+        }
+    }
+
+    /** Return the offset of the first record of the messages that is not
+     * in the index.
+     * @return the offset. */
+    private static int indexed() {
+        List<Segment> segs = segments();
+        return segs.isEmpty() ? HEADER : segs.get(segs.size() - 1)._end;
+    }
+
+    /** Make the messages not in the index into a new segment, then merge
+     * the newest segments while the one before the last is less than
+     * FANOUT times the size of the last and neither is over MERGE_LIMIT.
+     * Each merge copies the offsets of both as they are, and the segments
+     * merged are deleted after the new one is in place, so the index is
+     * whole at any time. */
+    static void build() {
+        MappedByteBuffer msgs = messages();
+        List<Segment> segs = segments();
+        int start = indexed();
+        if (start >= msgs.limit()) {
+            return;
+        }
+        segs.add(write(start, msgs.limit(), new Fresh(msgs, start), null));
+        while (segs.size() >= 2) {
+            Segment prev = segs.get(segs.size() - 2);
+            Segment last = segs.get(segs.size() - 1);
+            if (prev.size() > MERGE_LIMIT || last.size() > MERGE_LIMIT
+                    || prev.size() >= FANOUT * last.size()) {
+                break;
+            }
+            Segment merged = write(prev._start, last._end, prev, last);
+            segs.remove(segs.size() - 1);
+            segs.set(segs.size() - 1, merged);
+            prev._file.delete();
+            last._file.delete();
+        }
+    }
+
+    /** Write the segment of the records from START to END, with the terms
+     * of ONE and those of TWO, which holds later records, or null.
+     * @param start the offset of its first record.
+     * @param end the offset after its last record.
+     * @param one the terms of the first records.
+     * @param two the terms of the records after them, or null.
+     * @return the segment. */
+    private static Segment write(int start, int end, Terms one, Terms two) {
+        int count1 = one.terms();
+        int count2 = two == null ? 0 : two.terms();
+        long[] terms = new long[count1 + count2];
+        int[] at1 = new int[terms.length];
+        int[] at2 = new int[terms.length];
+        int n = 0;
+        for (int i = 0, j = 0; i < count1 || j < count2; n += 1) {
+            long term1 = i < count1 ? one.term(i) : 0;
+            long term2 = j < count2 ? two.term(j) : 0;
+            at1[n] = -1;
+            at2[n] = -1;
+            if (j == count2 || (i < count1 && term1 <= term2)) {
+                terms[n] = term1;
+                at1[n] = i;
+                i += 1;
+                if (j < count2 && term1 == term2) {
+                    at2[n] = j;
+                    j += 1;
+                }
+            } else {
+                terms[n] = term2;
+                at2[n] = j;
+                j += 1;
+            }
+        }
+        INDEX_DIR.mkdirs();
+        File file = new File(INDEX_DIR, start + "-" + end);
+        try {
+            Path temp = Files.createTempFile(INDEX_DIR.toPath(), "tmp-",
+                    ".midx");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(start);
+                out.writeInt(end);
+                out.writeInt(n);
+                int offsets = INDEX_HEADER + ENTRY * n;
+                for (int k = 0; k < n; k += 1) {
+                    int count = (at1[k] < 0 ? 0 : one.count(at1[k]))
+                            + (at2[k] < 0 ? 0 : two.count(at2[k]));
+                    out.writeLong(terms[k]);
+                    out.writeInt(offsets);
+                    out.writeInt(count);
+                    offsets += Integer.BYTES * count;
+                }
+                for (int k = 0; k < n; k += 1) {
+                    if (at1[k] >= 0) {
+                        one.write(at1[k], out);
+                    }
+                    if (at2[k] >= 0) {
+                        two.write(at2[k], out);
+                    }
+                }
+            }
+            Files.move(temp, file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return new Segment(file, start, end, map(file, INDEX_MAGIC));
+    }
+
+    /** Return the mapped messages, writing them first if there are none.
+     * @return the mapped messages. */
+    private static MappedByteBuffer messages() {
+        if (!MESSAGES_FILE.isFile()) {
+            reindex();
+        }
+        if (_messages == null) {
+            _messages = map(MESSAGES_FILE, MESSAGES_MAGIC);
+        }
+        return _messages;
+    }
+
+    /** Return the segments of the index in order: the one from the first
+     * record, then the one from where it ends, and so on, taking the
+     * longest where a merge stopped before deleting the segments it
+     * merged. Those and any other segment left over are deleted. An index
+     * kept in a single file, as it was before segments, is dropped, so
+     * the messages are indexed again.
+     * @return the segments, up to the end of the messages. */
+    private static List<Segment> segments() {
+        if (_segments != null) {
+            return _segments;
+        }
+        if (INDEX_DIR.isFile()) {
+            INDEX_DIR.delete();
+        }
+        int limit = messages().limit();
+        HashMap<Integer, File> longest = new HashMap<>();
+        HashMap<Integer, Integer> ends = new HashMap<>();
+        List<File> unused = new ArrayList<>();
+        File[] files = INDEX_DIR.listFiles();
+        for (File f : files == null ? new File[0] : files) {
+            String[] range = f.getName().split("-");
+            if (range.length != 2 || !range[0].matches("[0-9]+")
+                    || !range[1].matches("[0-9]+")) {
+                continue;
+            }
+            int start = Integer.parseInt(range[0]);
+            int end = Integer.parseInt(range[1]);
+            if (end > limit || ends.getOrDefault(start, -1) >= end) {
+                unused.add(f);
+                continue;
+            }
+            if (longest.containsKey(start)) {
+                unused.add(longest.get(start));
+            }
+            longest.put(start, f);
+            ends.put(start, end);
+        }
+        _segments = new ArrayList<>();
+        for (int start = HEADER; longest.containsKey(start);
+             start = ends.get(start)) {
+            File f = longest.remove(start);
+            MappedByteBuffer map = map(f, INDEX_MAGIC);
+            if (map == null || map.limit() < INDEX_HEADER
+                    || map.getInt(Integer.BYTES * 2) != start
+                    || map.getInt(Integer.BYTES * 3) != ends.get(start)) {
+                unused.add(f);
+                break;
+            }
+            _segments.add(new Segment(f, start, ends.get(start), map));
+        }
+        unused.addAll(longest.values());
+        for (File f : unused) {
+            f.delete();
+        }
+        return _segments;
+    }
+
+    /** Return FILE mapped into memory, read only, or null if it does not
+     * start with MAGIC.
+     * @param file the file to map.
+     * @param magic its first int.
+     * @return the mapped buffer. */
+    private static MappedByteBuffer map(File file, int magic) {
+        try (FileChannel in = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            MappedByteBuffer result = in.map(FileChannel.MapMode.READ_ONLY,
+                    0, in.size());
+            if (result.limit() < HEADER || result.getInt(0) != magic) {
+                return null;
+            }
+            return result;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the words of TEXT, the runs of letters and digits in it.
+     * @param text the text.
+     * @return the words, in order. */
+    private static List<String> words(String text) {
+        List<String> result = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i += 1) {
+            boolean letter = i < text.length()
+                    && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                result.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    /** Return TEXT in lower case, the same in any locale.
+     * @param text the text.
+     * @return the text in lower case. */
+    private static String lower(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /** Return whether the char of TEXT at I is a letter or a digit, so a
+     * word there may go on past the end of TEXT.
+     * @param text the text.
+     * @param i the index of the char.
+     * @return true if it is. */
+    private static boolean startsWord(String text, int i) {
+        return i >= 0 && i < text.length()
+                && Character.isLetterOrDigit(text.charAt(i));
+    }
+
+    /** Return the 64-bit FNV-1a hash of the term TEXT of the kind KIND.
+     * @param kind EXACT or WORD.
+     * @param text the term.
+     * @return the hash. */
+    private static long hash(char kind, String text) {
+        long h = (FNV_OFFSET ^ kind) * FNV_PRIME;
+        for (int i = 0; i < text.length(); i += 1) {
+            h = (h ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /** The terms of some records, sorted by hash, with the offsets of the
+     * records holding each. */
+    private interface Terms {
+
+        /** Return the number of terms.
+         * @return the count. */
+        int terms();
+
+        /** Return the hash of the Ith term.
+         * @param i the index of the term.
+         * @return the hash. */
+        long term(int i);
+
+        /** Return the number of records holding the Ith term.
+         * @param i the index of the term.
+         * @return the count. */
+        int count(int i);
+
+        /** Write the offsets of the records holding the Ith term into
+         * OUT, in order.
+         * @param i the index of the term.
+         * @param out where to write. */
+        void write(int i, DataOutputStream out) throws IOException;
+    }
+
+    /** A segment of the index, mapped from its file. Its header holds its
+     * magic, its version, the offsets of the records it starts and ends
+     * at and the number of terms. */
+    private static class Segment implements Terms {
+
+        /** The segment FILE of the records from START to END, mapped as
+         * MAP.
+         * @param file the file.
+         * @param start the offset of its first record.
+         * @param end the offset after its last record.
+         * @param map the mapped file. */
+        Segment(File file, int start, int end, MappedByteBuffer map) {
+            _file = file;
+            _start = start;
+            _end = end;
+            _map = map;
+        }
+
+        /** Return the bytes of messages it covers.
+         * @return the size. */
+        int size() {
+            return _end - _start;
+        }
+
+        @Override
+        public int terms() {
+            return _map.getInt(INDEX_HEADER - Integer.BYTES);
+        }
+
+        @Override
+        public long term(int i) {
+            return _map.getLong(INDEX_HEADER + ENTRY * i);
+        }
+
+        @Override
+        public int count(int i) {
+            return _map.getInt(INDEX_HEADER + ENTRY * i + Long.BYTES
+                    + Integer.BYTES);
+        }
+
+        @Override
+        public void write(int i, DataOutputStream out) throws IOException {
+            byte[] offsets = new byte[Integer.BYTES * count(i)];
+            _map.get(_map.getInt(INDEX_HEADER + ENTRY * i + Long.BYTES),
+                    offsets);
+            out.write(offsets);
+        }
+
+        /** Return the index of the term TERM, by a binary search.
+         * @param term the hash of the term.
+         * @return the index, -1 if it is not there. */
+        int find(long term) {
+            int lo = 0;
+            int hi = terms() - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = Long.compare(term(mid), term);
+                if (cmp == 0) {
+                    return mid;
+                } else if (cmp < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return -1;
+        }
+
+        /** Return the offset of the Jth record holding the Ith term.
+         * @param i the index of the term.
+         * @param j the index of the record among those holding it.
+         * @return the offset of the record in the messages. */
+        int offset(int i, int j) {
+            return _map.getInt(_map.getInt(INDEX_HEADER + ENTRY * i
+                    + Long.BYTES) + Integer.BYTES * j);
+        }
+
+        /** The file. */
+        private final File _file;
+        /** The offset of the first record. */
+        private final int _start;
+        /** The offset after the last record. */
+        private final int _end;
+        /** The mapped file. */
+        private final MappedByteBuffer _map;
+    }
+
+    /** The terms of records not indexed yet, read from the messages. */
+    private static class Fresh implements Terms {
+
+        /** The terms of the records of MSGS from the one at FROM on.
+         * @param msgs the mapped messages.
+         * @param from the offset of the first record. */
+        Fresh(ByteBuffer msgs, int from) {
+            HashSet<Long> seen = new HashSet<>();
+            for (int off = from; off < msgs.limit();
+                 off += RECORD + msgs.getInt(off + ID_SIZE)) {
+                byte[] bytes = new byte[msgs.getInt(off + ID_SIZE)];
+                msgs.get(off + RECORD, bytes);
+                String message = new String(bytes, StandardCharsets.UTF_8);
+                seen.clear();
+                seen.add(hash(EXACT, message));
+                for (String word : words(lower(message))) {
+                    seen.add(hash(WORD, word));
+                }
+                for (long term : seen) {
+                    _postings.computeIfAbsent(term, t -> new Postings())
+                            .add(off);
+                }
+            }
+            _terms = new long[_postings.size()];
+            int n = 0;
+            for (long term : _postings.keySet()) {
+                _terms[n] = term;
+                n += 1;
+            }
+            Arrays.sort(_terms);
+        }
+
+        @Override
+        public int terms() {
+            return _terms.length;
+        }
+
+        @Override
+        public long term(int i) {
+            return _terms[i];
+        }
+
+        @Override
+        public int count(int i) {
+            return _postings.get(_terms[i])._size;
+        }
+
+        @Override
+        public void write(int i, DataOutputStream out) throws IOException {
+            Postings postings = _postings.get(_terms[i]);
+            for (int k = 0; k < postings._size; k += 1) {
+                out.writeInt(postings._offsets[k]);
+            }
+        }
+
+        /** The offsets of the records holding each term, saved by its
+         * hash. */
+        private final HashMap<Long, Postings> _postings = new HashMap<>();
+        /** The terms, sorted. */
+        private final long[] _terms;
+    }
+
+    /** The offsets of the records holding one term, in order. */
+    private static class Postings {
+
+        /** Add OFFSET at the end.
+         * @param offset the offset of a record. */
+        void add(int offset) {
+            if (_size == _offsets.length) {
+                _offsets = Arrays.copyOf(_offsets, 2 * _size);
+            }
+            _offsets[_size] = offset;
+            _size += 1;
+        }
+
+        /** The offsets, the first _size of them used. */
+        private int[] _offsets = new int[2];
+        /** The number of offsets. */
+        private int _size;
+    }
+
+    /** The first int of the messages. */
+    private static final int MESSAGES_MAGIC = 0x4d534753;
+    /** The first int of a segment of the index. */
+    private static final int INDEX_MAGIC = 0x4d494458;
+    /** The version of the format of the messages and the segments. */
+    private static final int VERSION = 1;
+    /** The size of the header of the messages: magic and version. */
+    private static final int HEADER = 8;
+    /** The size of the header of a segment: magic, version, the offsets of
+     * the records it starts and ends at and the number of terms. */
+    private static final int INDEX_HEADER = 20;
+    /** The size of a commit id. */
+    private static final int ID_SIZE = 20;
+    /** The size of a record before its message: id and length. */
+    private static final int RECORD = ID_SIZE + Integer.BYTES;
+    /** The size of the entry of a term: hash, start and count. */
+    private static final int ENTRY = 16;
+    /** The most bytes of messages left out of the index. */
+    private static final int TAIL_LIMIT = 1 << 16;
+    /** The most bytes of messages of a segment that is merged again. */
+    private static final int MERGE_LIMIT = 1 << 20;
+    /** How many times larger than the next a segment is left unmerged. */
+    private static final int FANOUT = 4;
+    /** The kind of the term of a whole message. */
+    private static final char EXACT = '=';
+    /** The kind of the term of a word. */
+    private static final char WORD = 'w';
+    /** The offset basis of FNV-1a. */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    /** The prime of FNV-1a. */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** The mapped messages, null until first needed. */
+    private static MappedByteBuffer _messages;
+    /** The segments of the index, null until first needed. */
+    private static List<Segment> _segments;
+
+}
@@ -0,0 +1,899 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/** Content-addressed store for the immutable objects of Gitlet (commits,
+ *  trees and blobs). Every object is first written once in its own (loose)
+ *  file under .gitlet/objects, named by its sha-1, and is only read when a
+ *  command actually needs it. repack() moves the loose objects into packs,
+ *  see PackFile.
+ *  @author Xiaoyi Zhu
+ */
+class ObjectStore {
+
+    /** The directory holding all the objects. */
+    static final File OBJECTS_DIR = new File(".gitlet/objects");
+
+    /** The file listing the id of every commit, one per line, in the
+     *  order they were made. */
+    static final File COMMIT_LIST = new File(".gitlet/commit-list");
+
+    /** Return the file holding the object ID, objects are fanned out into
+     *  sub-directories by the first two characters of their id.
+     *  @param id the sha-1 of the object.
+     *  @return the file of this object. */
+    static File objectFile(String id) {
+        return Utils.join(OBJECTS_DIR, id.substring(0, 2), id.substring(2));
+    }
+
+    /** Return whether the object ID is in the store. The mapped indexes of
+     *  the packs are searched first, so a packed object costs no system
+     *  call; the loose file is only looked for if they do not hold it.
+     *  @param id the sha-1 of the object.
+     *  @return true if it has been written. */
+    static boolean contains(String id) {
+        return PackFile.lookup(id) != null || objectFile(id).isFile();
+    }
+
+    /** Write OBJ into the store as ID, unless it is already there.
+     *  @param id the sha-1 of the object.
+     *  @param obj the object to be written. */
+    static void writeObject(String id, Codec.Encodable obj) {
+        if (contains(id)) {
+            return;
+        }
+        writeBytes(id, obj.encode());
+    }
+
+    /** Write DATA into the store as ID, unless it is already there.
+     *  @param id the sha-1 of the object.
+     *  @param data the content of the object. */
+    static void writeBytes(String id, byte[] data) {
+        if (contains(id)) {
+            return;
+        }
+        write(objectFile(id), data);
+    }
+
+    /** Return the object ID read from the store, casting it to
+     *  EXPECTEDCLASS.
+     *  @param id the sha-1 of the object.
+     *  @param expectedClass the class of the object.
+     *  @param <T> the type of the object.
+     *  @return the object, null if there is no such object. */
+    static <T extends Serializable> T readObject(String id,
+                                                 Class<T> expectedClass) {
+        if (!contains(id)) {
+            return null;
+        }
+        return Codec.decode(readBytes(id), expectedClass);
+    }
+
+    /** Return the commit with the full sha-1 ID, null if there is none.
+     *  Commits are cached, since history walks read the same ones again.
+     *  @param id the sha-1 of the commit.
+     *  @return the commit. */
+    static Commit readCommit(String id) {
+        return readCached(id, Commit.class);
+    }
+
+    /** Return the tree with the sha-1 ID, null if there is none. Trees are
+     *  cached like commits, since they are shared between commits.
+     *  @param id the sha-1 of the tree.
+     *  @return the tree. */
+    static Tree readTree(String id) {
+        return readCached(id, Tree.class);
+    }
+
+    /** Return the object ID, reading it from the store only if it is not
+     *  cached yet.
+     *  @param id the sha-1 of the object.
+     *  @param expectedClass the class of the object.
+     *  @param <T> the type of the object.
+     *  @return the object, null if there is no such object. */
+    private static <T extends Serializable> T readCached(String id,
+                                                 Class<T> expectedClass) {
+        if (id == null) {
+            return null;
+        }
+        Serializable obj;
+        synchronized (CACHE) {
+            obj = CACHE.get(id);
+        }
+        if (obj == null) {
+            obj = readObject(id, expectedClass);
+            if (obj != null) {
+                cache(id, obj);
+            }
+        }
+        return expectedClass.cast(obj);
+    }
+
+    /** Put OBJ into the cache as ID, dropping the least recently used
+     *  object once the cache holds more than CACHE_SIZE.
+     *  @param id the sha-1 of the object.
+     *  @param obj the commit or tree. */
+    private static void cache(String id, Serializable obj) {
+        synchronized (CACHE) {
+            CACHE.put(id, obj);
+            Iterator<Serializable> eldest = CACHE.values().iterator();
+            while (CACHE.size() > CACHE_SIZE) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /** Return the blob with the sha-1 ID, null if there is none. Only
+     *  the handle is made, the content is read when it is asked for.
+     *  @param id the sha-1 of the blob.
+     *  @return the blob. */
+    static Blobs readBlobs(String id) {
+        if (id == null) {
+            return null;
+        }
+        if (!contains(id)) {
+            return null;
+        }
+        return Blobs.stored(id);
+    }
+
+    /** Return the whole content of the blob ID.
+     *  @param id the sha-1 of the blob.
+     *  @return the content. */
+    static byte[] readBytes(String id) {
+        try (InputStream in = openStream(id)) {
+            return in.readAllBytes();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the size of the content of the object ID, as it is before
+     *  compression.
+     *  @param id the sha-1 of the object.
+     *  @return the size in bytes. */
+    static long size(String id) {
+        try (DataInputStream in = new DataInputStream(storedStream(id))) {
+            in.readByte();
+            return in.readLong();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Write the content of the blob ID into the file DEST, streaming it
+     *  out of the store so that it is never held in memory as a whole.
+     *  @param id the sha-1 of the blob.
+     *  @param dest the file to write. */
+    static void copyTo(String id, File dest) {
+        if (dest.isDirectory()) {
+            throw new IllegalArgumentException("cannot overwrite directory");
+        }
+        try {
+            if (transferRaw(id, dest)) {
+                return;
+            }
+            try (InputStream in = openStream(id)) {
+                Files.copy(in, dest.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Write the content of the blob ID into DEST if it is stored as is,
+     *  channel to channel: straight from the mapped pack, or with
+     *  FileChannel.transferTo from a loose file, so the kernel copies it
+     *  without passing it through the heap.
+     *  @param id the sha-1 of the blob.
+     *  @param dest the file to write.
+     *  @return false if the blob is not stored as is. */
+    private static boolean transferRaw(String id, File dest)
+        throws IOException {
+        ByteBuffer entry = PackFile.lookup(id);
+        if (entry != null) {
+            if (entry.get(0) != RAW) {
+                return false;
+            }
+            try (FileChannel out = openForWrite(dest)) {
+                PackFile.writeFully(out, entry.position(HEADER_SIZE));
+            }
+            return true;
+        }
+        try (FileChannel in = FileChannel.open(objectFile(id).toPath(),
+                StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && in.read(header) >= 0) {
+                continue;
+            }
+            if (header.get(0) != RAW) {
+                return false;
+            }
+            long size = header.getLong(1);
+            try (FileChannel out = openForWrite(dest)) {
+                long pos = 0;
+                while (pos < size) {
+                    long n = in.transferTo(HEADER_SIZE + pos, size - pos,
+                            out);
+                    if (n <= 0) {
+                        break;
+                    }
+                    pos += n;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** Return a channel writing FILE from its start, truncating it.
+     *  @param file the file.
+     *  @return the channel, which the caller must close. */
+    private static FileChannel openForWrite(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /** Return a stream of the stored form of the object ID, from the
+     *  pack holding it or from its loose file.
+     *  @param id the sha-1 of the object.
+     *  @return the stream, which the caller must close. */
+    private static InputStream storedStream(String id) throws IOException {
+        ByteBuffer entry = PackFile.lookup(id);
+        if (entry != null) {
+            return PackFile.stream(entry);
+        }
+        File f = objectFile(id);
+        if (!f.isFile()) {
+            throw new IllegalArgumentException("no object " + id);
+        }
+        return new BufferedInputStream(Files.newInputStream(f.toPath()),
+                BUFFER_SIZE);
+    }
+
+    /** Return a stream of the content of the object ID. Deflated objects
+     *  are inflated as the stream is read, a buffer at a time. Deltas are
+     *  applied to their base, which is read through the cache of bases.
+     *  @param id the sha-1 of the object.
+     *  @return the stream, which the caller must close. */
+    static InputStream openStream(String id) {
+        Trace.objectRead();
+        try {
+            InputStream in = storedStream(id);
+            int format = in.read();
+            in.skipNBytes(Long.BYTES);
+            if (format == RAW) {
+                return in;
+            }
+            if (format == DELTA) {
+                try (InputStream delta = in) {
+                    String base = Utils.toHex(
+                            delta.readNBytes(Utils.UID_LENGTH / 2));
+                    byte[] target = Delta.apply(readBase(base),
+                            inflating(delta).readAllBytes());
+                    cacheBase(id, target);
+                    return new ByteArrayInputStream(target);
+                }
+            }
+            return inflating(in);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return a stream inflating IN.
+     *  @param in the deflated bytes.
+     *  @return the stream, which ends its Inflater when closed. */
+    private static InputStream inflating(InputStream in) {
+        Inflater inflater = new Inflater();
+        return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                inflater.end();
+            }
+        };
+    }
+
+    /** Return the content of the object ID, used as the base of a delta.
+     *  The bases are kept in a small cache, since the objects along a
+     *  delta chain and the ones read again by checkout and log share them.
+     *  @param id the sha-1 of the object.
+     *  @return the content. */
+    private static synchronized byte[] readBase(String id) {
+        byte[] data = BASES.get(id);
+        if (data == null) {
+            data = readBytes(id);
+            cacheBase(id, data);
+        }
+        return data;
+    }
+
+    /** Keep DATA, the content of ID, in the cache of bases, dropping the
+     *  least recently used ones once the cache is over BASE_CACHE_SIZE.
+     *  @param id the sha-1 of the object.
+     *  @param data its content. */
+    private static synchronized void cacheBase(String id, byte[] data) {
+        if (data.length > BASE_CACHE_SIZE / 4 || BASES.containsKey(id)) {
+            return;
+        }
+        BASES.put(id, data);
+        _baseCacheBytes += data.length;
+        Iterator<byte[]> eldest = BASES.values().iterator();
+        while (_baseCacheBytes > BASE_CACHE_SIZE) {
+            _baseCacheBytes -= eldest.next().length;
+            eldest.remove();
+        }
+    }
+
+    /** Copy the content of SOURCE into the store as a blob, unless it is
+     *  already there, and return its id. The file is read once, in chunks,
+     *  each of which is hashed and written into a temporary file, which is
+     *  then moved to the id that comes out, so the id always matches what
+     *  was stored. A file whose size changed while it was read is read
+     *  again, since its size is hashed first.
+     *  @param source the file holding the content.
+     *  @return the sha-1 of the blob. */
+    static String writeFile(File source) {
+        for (int i = 0; i < WRITE_TRIES; i += 1) {
+            try (FileChannel in = FileChannel.open(source.toPath(),
+                    StandardOpenOption.READ)) {
+                long size = in.size();
+                MessageDigest md = Utils.sha1Digest();
+                Utils.update(md, "blob " + size + "\0");
+                Path temp = write(in, size, md);
+                if (temp != null && in.size() == size) {
+                    Trace.hashed(size);
+                    String id = Utils.hexDigest(md);
+                    moveInto(temp, id);
+                    return id;
+                }
+                if (temp != null) {
+                    Files.delete(temp);
+                }
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+        throw new IllegalArgumentException(source + " kept changing while"
+                + " it was read");
+    }
+
+    /** Write DATA as the object file F.
+     *  @param f the object file.
+     *  @param data the content. */
+    private static void write(File f, byte[] data) {
+        try {
+            Path temp = write(Channels.newChannel(
+                    new ByteArrayInputStream(data)), data.length, null);
+            f.getParentFile().mkdirs();
+            Files.move(temp, f.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        Trace.objectWritten();
+    }
+
+    /** Move the object file TEMP into place as the object ID, or delete
+     *  it if the store holds ID already.
+     *  @param temp the object file written.
+     *  @param id the sha-1 of the object. */
+    private static void moveInto(Path temp, String id) throws IOException {
+        if (contains(id)) {
+            Files.delete(temp);
+            return;
+        }
+        File f = objectFile(id);
+        f.getParentFile().mkdirs();
+        Files.move(temp, f.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        Trace.objectWritten();
+    }
+
+    /** Write the SIZE bytes of IN into a new temporary object file, in
+     *  chunks, feeding each to MD as well unless it is null. The file
+     *  starts with its format and SIZE, then comes the content, deflated
+     *  at the compression level of this repository, or as is at level 0.
+     *  It is moved into place by the caller, so an object is never seen
+     *  half written.
+     *  @param in the content.
+     *  @param size the size of the content.
+     *  @param md the digest of the content, or null.
+     *  @return the temporary file, null if IN ended before SIZE bytes. */
+    private static Path write(ReadableByteChannel in, long size,
+                              MessageDigest md) throws IOException {
+        OBJECTS_DIR.mkdirs();
+        Path temp = Files.createTempFile(OBJECTS_DIR.toPath(), "tmp-", "");
+        int level = compressionLevel();
+        Deflater deflater = level == 0 ? null : new Deflater(level);
+        long pos = 0;
+        try (FileChannel out = FileChannel.open(temp,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.put(level == 0 ? RAW : DEFLATED).putLong(size).flip();
+            PackFile.writeFully(out, header);
+            OutputStream body = Channels.newOutputStream(out);
+            if (deflater != null) {
+                body = new DeflaterOutputStream(body, deflater, BUFFER_SIZE);
+            }
+            ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+            while (pos < size) {
+                buf.clear().limit((int) Math.min(BUFFER_SIZE, size - pos));
+                int n = in.read(buf);
+                if (n < 0) {
+                    break;
+                }
+                if (md != null) {
+                    md.update(buf.array(), 0, n);
+                }
+                body.write(buf.array(), 0, n);
+                pos += n;
+            }
+            body.close();
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        if (pos < size) {
+            Files.delete(temp);
+            return null;
+        }
+        return temp;
+    }
+
+    /** Write the object ID into a pack at the position of OUT: as the
+     *  delta ENTRY if there is one, otherwise in full, copying its stored
+     *  form unless that is itself a delta.
+     *  @param id the sha-1 of the object.
+     *  @param entry the stored form of the delta of the object, or null.
+     *  @param out the channel to write to. */
+    static void writePacked(String id, byte[] entry, FileChannel out)
+        throws IOException {
+        ByteBuffer packed = PackFile.lookup(id);
+        if (entry != null) {
+            PackFile.writeFully(out, ByteBuffer.wrap(entry));
+        } else if (packed != null && packed.get(0) == DELTA) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.put(DEFLATED).putLong(size(id)).flip();
+            PackFile.writeFully(out, header);
+            Deflater deflater = new Deflater(compressionLevel());
+            try (InputStream in = openStream(id)) {
+                DeflaterOutputStream body = new DeflaterOutputStream(
+                        Channels.newOutputStream(out), deflater, BUFFER_SIZE);
+                in.transferTo(body);
+                body.finish();
+                body.flush();
+            } finally {
+                deflater.end();
+            }
+        } else if (packed != null) {
+            PackFile.writeFully(out, packed);
+        } else {
+            try (FileChannel in = FileChannel.open(objectFile(id).toPath(),
+                    StandardOpenOption.READ)) {
+                long size = in.size();
+                long pos = 0;
+                while (pos < size) {
+                    pos += in.transferTo(pos, size - pos, out);
+                }
+            }
+        }
+    }
+
+    /** Move all the objects into one set of packs, newest commits first so
+     *  a history walk reads forward through the pack, then the other
+     *  objects by id. The loose objects and the old packs are deleted once
+     *  the new packs are in place. Objects too large to be mapped stay
+     *  loose. */
+    static void repack() {
+        List<String> loose = new ArrayList<>();
+        File[] dirs = OBJECTS_DIR.listFiles(File::isDirectory);
+        if (dirs != null) {
+            for (File dir : dirs) {
+                for (File f : dir.listFiles()) {
+                    if (f.length() < PackFile.SIZE_LIMIT) {
+                        loose.add(dir.getName() + f.getName());
+                    }
+                }
+            }
+        }
+        List<PackFile> oldPacks = PackFile.all();
+        if (loose.isEmpty() && oldPacks.size() <= 1) {
+            return;
+        }
+        TreeSet<String> rest = new TreeSet<>(loose);
+        for (PackFile pack : oldPacks) {
+            for (int i = 0; i < pack.count(); i += 1) {
+                rest.add(pack.idAt(i));
+            }
+        }
+        LinkedHashSet<String> order = new LinkedHashSet<>();
+        List<String> commits = commitIds();
+        for (int i = commits.size() - 1; i >= 0; i -= 1) {
+            if (rest.contains(commits.get(i))) {
+                order.add(commits.get(i));
+            }
+        }
+        order.addAll(rest);
+        replacePacks(new ArrayList<>(order), findDeltas());
+        for (String id : loose) {
+            objectFile(id).delete();
+        }
+        for (File dir : dirs) {
+            dir.delete();
+        }
+    }
+
+    /** Write the objects IDS, in this order, into new packs, as the delta
+     *  in DELTAS for those that have one and in full otherwise, then delete
+     *  the old packs.
+     *  @param ids the sha-1 of the objects.
+     *  @param deltas the stored forms of the deltas, saved by id. */
+    private static void replacePacks(List<String> ids,
+                                     Map<String, byte[]> deltas) {
+        List<String> written = PackFile.write(ids, deltas);
+        File[] packFiles = PackFile.PACK_DIR.listFiles((dir, name) ->
+                name.startsWith("pack-") && !written.contains(name));
+        for (File f : packFiles) {
+            f.delete();
+        }
+        PackFile.reset();
+    }
+
+    /** Return the deltas to use in the new packs, saved by the id of the
+     *  object they make. The versions of each path are found by walking the
+     *  trees of every commit, skipping the subtrees already seen. Along each
+     *  path the newest version is kept in full and each older one becomes a
+     *  delta against the next newer one, so recent versions are the fastest
+     *  to read. A chain is ended at MAX_DEPTH, and a delta is only used if
+     *  it is smaller than the object deflated in full. An object is given a
+     *  delta or not only once, and only against a base already decided, so
+     *  chains never loop.
+     *  @return the stored forms of the deltas. */
+    private static HashMap<String, byte[]> findDeltas() {
+        HashMap<String, LinkedHashSet<String>> versions = new HashMap<>();
+        HashSet<String> seen = new HashSet<>();
+        for (String id : commitIds()) {
+            findVersions(readCommit(id).getTreeId(), "", versions, seen);
+        }
+        HashMap<String, Integer> depth = new HashMap<>();
+        HashMap<String, byte[]> deltas = new HashMap<>();
+        for (LinkedHashSet<String> ids : versions.values()) {
+            List<String> list = new ArrayList<>(ids);
+            String base = null;
+            for (int i = list.size() - 1; i >= 0; i -= 1) {
+                String id = list.get(i);
+                if (!depth.containsKey(id)) {
+                    byte[] entry = null;
+                    if (base != null && depth.get(base) < MAX_DEPTH
+                            && size(base) <= DELTA_SIZE_LIMIT
+                            && size(id) <= DELTA_SIZE_LIMIT) {
+                        entry = deltaEntry(id, base);
+                    }
+                    if (entry == null) {
+                        depth.put(id, 0);
+                    } else {
+                        deltas.put(id, entry);
+                        depth.put(id, depth.get(base) + 1);
+                    }
+                }
+                base = id;
+            }
+        }
+        return deltas;
+    }
+
+    /** Add the tree TREEID at PATH, and every tree and blob below it, to
+     *  the versions of their paths, unless the tree is in SEEN.
+     *  @param treeId the id of the tree.
+     *  @param path the path of the tree, "" for the root.
+     *  @param versions the ids of each path, oldest first.
+     *  @param seen the trees already walked. */
+    private static void findVersions(String treeId, String path,
+                                     HashMap<String, LinkedHashSet<String>>
+                                             versions, HashSet<String> seen) {
+        if (!seen.add(treeId)) {
+            return;
+        }
+        versions.computeIfAbsent(path + "/", k -> new LinkedHashSet<>())
+                .add(treeId);
+        for (Map.Entry<String, String> entry
+                : readTree(treeId).getEntries().entrySet()) {
+            String name = path + entry.getKey();
+            if (name.endsWith("/")) {
+                findVersions(entry.getValue(), name, versions, seen);
+            } else {
+                versions.computeIfAbsent(name, k -> new LinkedHashSet<>())
+                        .add(entry.getValue());
+            }
+        }
+    }
+
+    /** Return the stored form of the object ID as a delta against BASE:
+     *  its format, its size, the 20 bytes of BASE and the deflated delta.
+     *  @param id the sha-1 of the object.
+     *  @param base the sha-1 of the base.
+     *  @return the stored form, null if it is not smaller than ID deflated
+     *  in full. */
+    private static byte[] deltaEntry(String id, String base) {
+        byte[] target = readBase(id);
+        byte[] delta = deflate(Delta.create(readBase(base), target));
+        if (delta.length >= deflate(target).length) {
+            return null;
+        }
+        ByteBuffer entry = ByteBuffer.allocate(HEADER_SIZE
+                + Utils.UID_LENGTH / 2 + delta.length);
+        entry.put(DELTA).putLong(target.length).put(Utils.fromHex(base));
+        entry.put(delta);
+        return entry.array();
+    }
+
+    /** Return DATA deflated at the compression level of this repository.
+     *  @param data the bytes.
+     *  @return the deflated bytes. */
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(compressionLevel());
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (DeflaterOutputStream body =
+                         new DeflaterOutputStream(out, deflater)) {
+                body.write(data);
+            }
+            return out.toByteArray();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /** Return the compression level of this repository.
+     *  @return the Deflater level. */
+    private static int compressionLevel() {
+        return Config.getInt(Config.COMPRESSION, Config.DEFAULT_COMPRESSION);
+    }
+
+    /** Write the new commit COM into the store. Its id is recorded in
+     *  the commit list, the commit-graph and the message index in memory
+     *  only, and written into their files by flush() when the repo is
+     *  saved, so a command or a batch that does not get that far leaves
+     *  no commit in them that no branch reaches.
+     *  @param com the commit to be written. */
+    static void writeCommit(Commit com) {
+        String id = com.getSha();
+        writeObject(id, com);
+        cache(id, com);
+        PENDING.add(com);
+        if (_commitIds != null) {
+            _commitIds.add(id);
+        }
+        CommitIndex.add(id);
+        CommitGraph.add(com);
+    }
+
+    /** Return the commits written since the last flush().
+     *  @return the commits, in the order they were made. */
+    static List<Commit> pending() {
+        return PENDING;
+    }
+
+    /** Return the number of commits in the file of the commit list, which
+     *  come before the pending ones.
+     *  @return the count. */
+    static int saved() {
+        return commitIds().size() - PENDING.size();
+    }
+
+    /** Append the ids of the pending commits to the commit list, then
+     *  their records to the commit-graph and the message index. */
+    static void flush() {
+        if (PENDING.isEmpty()) {
+            return;
+        }
+        List<Commit> commits = new ArrayList<>(PENDING);
+        StringBuilder ids = new StringBuilder();
+        for (Commit com : commits) {
+            ids.append(com.getSha()).append('\n');
+        }
+        try {
+            Files.write(COMMIT_LIST.toPath(),
+                    ids.toString().getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        PENDING.clear();
+        CommitGraph.flush();
+        MessageIndex.add(commits);
+    }
+
+    /** Drop the pending commits after the first KEEP, which a command that
+     *  stopped early made, from the lists kept in memory.
+     *  @param keep the number of pending commits to keep. */
+    static void discard(int keep) {
+        if (PENDING.size() <= keep) {
+            return;
+        }
+        PENDING.subList(keep, PENDING.size()).clear();
+        _commitIds = null;
+        CommitIndex.reset();
+        CommitGraph.reset();
+    }
+
+    /** Forget what this process read and the commits it has not
+     *  flushed. */
+    static void reset() {
+        discard(0);
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    /** Write every commit and every tree of this repository that is still
+     *  stored by Java serialization again, in the format of Codec. All of
+     *  them are read before any is written, since a packed one may be a
+     *  delta against another. A loose object is replaced. If any is packed,
+     *  the packs are first written again without them, since a pack is
+     *  read before the loose files, then they are written loose and the
+     *  store is repacked, so the packs end up holding the new ones only.
+     *  @return the number of objects written again. */
+    static int migrate() {
+        LinkedHashMap<String, byte[]> encoded = new LinkedHashMap<>();
+        HashSet<String> seen = new HashSet<>();
+        for (String id : commitIds()) {
+            encode(id, encoded);
+            encodeTree(readCommit(id).getTreeId(), seen, encoded);
+        }
+        boolean packed = false;
+        for (String id : encoded.keySet()) {
+            packed |= PackFile.lookup(id) != null;
+        }
+        if (packed) {
+            List<String> keep = new ArrayList<>();
+            for (PackFile pack : PackFile.all()) {
+                for (int i = 0; i < pack.count(); i += 1) {
+                    if (!encoded.containsKey(pack.idAt(i))) {
+                        keep.add(pack.idAt(i));
+                    }
+                }
+            }
+            replacePacks(keep, new HashMap<>());
+        }
+        synchronized (ObjectStore.class) {
+            BASES.clear();
+            _baseCacheBytes = 0;
+        }
+        for (Map.Entry<String, byte[]> entry : encoded.entrySet()) {
+            File f = objectFile(entry.getKey());
+            f.delete();
+            write(f, entry.getValue());
+        }
+        if (packed) {
+            repack();
+        }
+        return encoded.size();
+    }
+
+    /** Put into ENCODED the tree ID and the trees below it, skipping those
+     *  in SEEN, as encode() does.
+     *  @param id the sha-1 of the tree.
+     *  @param seen the trees done already.
+     *  @param encoded the objects to write again, saved by sha-1. */
+    private static void encodeTree(String id, HashSet<String> seen,
+                                   Map<String, byte[]> encoded) {
+        if (!seen.add(id)) {
+            return;
+        }
+        encode(id, encoded);
+        for (Map.Entry<String, String> entry
+                 : readTree(id).getEntries().entrySet()) {
+            if (entry.getKey().endsWith("/")) {
+                encodeTree(entry.getValue(), seen, encoded);
+            }
+        }
+    }
+
+    /** Put into ENCODED the commit or tree ID in the format of Codec, if it
+     *  is stored by Java serialization.
+     *  @param id the sha-1 of the object.
+     *  @param encoded the objects to write again, saved by sha-1. */
+    private static void encode(String id, Map<String, byte[]> encoded) {
+        byte[] data = readBytes(id);
+        if (Codec.isLegacy(data)) {
+            encoded.put(id, Codec.decode(data, Codec.Encodable.class)
+                    .encode());
+        }
+    }
+
+    /** Return the ids of all the commits, in the order they were made,
+     *  the pending ones last.
+     *  @return the list of commit ids. */
+    static List<String> commitIds() {
+        if (_commitIds == null) {
+            _commitIds = new ArrayList<>();
+            if (COMMIT_LIST.isFile()) {
+                try {
+                    _commitIds.addAll(Files.readAllLines(COMMIT_LIST.toPath(),
+                            StandardCharsets.UTF_8));
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+            }
+            for (Commit com : PENDING) {
+                _commitIds.add(com.getSha());
+            }
+        }
+        return _commitIds;
+    }
+
+    /** The format of an object stored as is. */
+    private static final byte RAW = 0;
+    /** The format of an object compressed by a Deflater. */
+    private static final byte DEFLATED = 1;
+    /** The format of an object stored as a delta against another one,
+     *  only found in packs. */
+    private static final byte DELTA = 2;
+    /** The size of the header of an object: format and size. */
+    private static final int HEADER_SIZE = 1 + Long.BYTES;
+    /** The longest chain of deltas made by repack. */
+    private static final int MAX_DEPTH = 10;
+    /** Objects larger than this are never made into deltas. */
+    private static final long DELTA_SIZE_LIMIT = 1 << 26;
+    /** The bytes kept in the cache of delta bases. */
+    private static final long BASE_CACHE_SIZE = 1 << 25;
+    /** The most commits and trees kept in the cache of them. */
+    private static final int CACHE_SIZE = 1 << 15;
+    /** How many times a file that changes while it is stored is read. */
+    private static final int WRITE_TRIES = 3;
+    /** The size of the buffers used to stream objects. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Commits and trees read in this process, saved by sha-1, least
+     *  recently used first. */
+    private static final LinkedHashMap<String, Serializable> CACHE =
+            new LinkedHashMap<>(16, 0.75f, true);
+    /** The content of recently read delta bases, saved by sha-1, least
+     *  recently used first. */
+    private static final LinkedHashMap<String, byte[]> BASES =
+            new LinkedHashMap<>(16, 0.75f, true);
+    /** The commits written and not flushed yet. */
+    private static final List<Commit> PENDING = new ArrayList<>();
+    /** The bytes held in BASES. */
+    private static long _baseCacheBytes;
+    /** The ids in the commit list, null until first needed. */
+    private static List<String> _commitIds;
+
+}
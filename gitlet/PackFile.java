@@ -0,0 +1,358 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/** A packfile and its index. A pack holds many objects one after another,
+ *  each in the same form as a loose object file (format, size, content),
+ *  or as a delta against another object (see Delta), so a history is read
+ *  from one file instead of one file per object.
+ *  The index next to it holds
+ *  - a fanout table of 256 ints, entry B is the number of objects whose
+ *    id starts with a byte up to B,
+ *  - the 20-byte ids of the objects, sorted,
+ *  - the offset and the length of each object in the pack, in the same
+ *    order as the ids.
+ *  Both files are read through a MappedByteBuffer, so looking an object up
+ *  is a binary search in memory, with no system call per object.
+ *  @author Xiaoyi Zhu
+ */
+class PackFile {
+
+    /** The directory holding the packs and their indexes. */
+    static final File PACK_DIR = new File(".gitlet/pack");
+
+    /** Open the pack PACKFILE with its index IDXFILE.
+     * @param idxFile the index.
+     * @param packFile the pack. */
+    PackFile(File idxFile, File packFile) {
+        _index = map(idxFile);
+        _pack = map(packFile);
+        if (_index.getInt(0) != IDX_MAGIC || _pack.getInt(0) != PACK_MAGIC) {
+            throw new IllegalArgumentException("corrupt pack "
+                    + packFile.getName());
+        }
+        _count = _index.getInt(FANOUT_START + 4 * 255);
+        _offsetStart = ID_START + Utils.UID_LENGTH / 2 * _count;
+        _lengthStart = _offsetStart + Long.BYTES * _count;
+    }
+
+    /** Return the number of objects in this pack.
+     * @return the count. */
+    int count() {
+        return _count;
+    }
+
+    /** Return the id of the Ith object of the index.
+     * @param i the position in the index.
+     * @return the sha-1 String. */
+    String idAt(int i) {
+        byte[] id = new byte[Utils.UID_LENGTH / 2];
+        _index.get(ID_START + id.length * i, id);
+        return Utils.toHex(id);
+    }
+
+    /** Return the position in the index of the object ID.
+     * @param id the 20 bytes of the sha-1.
+     * @return the position, -1 if it is not in this pack. */
+    int find(byte[] id) {
+        int first = id[0] & 0xff;
+        int lo = 0;
+        if (first > 0) {
+            lo = _index.getInt(FANOUT_START + 4 * (first - 1));
+        }
+        int hi = _index.getInt(FANOUT_START + 4 * first) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(mid, id);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Return the stored form of the Ith object of the index.
+     * @param i the position in the index.
+     * @return a buffer holding the object, from its format byte on. */
+    ByteBuffer entry(int i) {
+        long offset = _index.getLong(_offsetStart + Long.BYTES * i);
+        long length = _index.getLong(_lengthStart + Long.BYTES * i);
+        return _pack.slice((int) offset, (int) length);
+    }
+
+    /** Compare the Ith id of the index with ID, byte by byte.
+     * @param i the position in the index.
+     * @param id the 20 bytes of the sha-1.
+     * @return negative, zero or positive as the Ith id is smaller, equal
+     * or larger. */
+    private int compare(int i, byte[] id) {
+        int base = ID_START + id.length * i;
+        for (int k = 0; k < id.length; k += 1) {
+            int c = (_index.get(base + k) & 0xff) - (id[k] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /** Return the stored form of the object ID in any pack.
+     * @param id the sha-1 of the object.
+     * @return a buffer holding the object, null if it is in no pack. */
+    static ByteBuffer lookup(String id) {
+        List<PackFile> packs = all();
+        if (packs.isEmpty()) {
+            return null;
+        }
+        byte[] raw = Utils.fromHex(id);
+        for (PackFile pack : packs) {
+            int i = pack.find(raw);
+            if (i >= 0) {
+                return pack.entry(i);
+            }
+        }
+        return null;
+    }
+
+    /** Return all the packs of this repository.
+     * @return the packs, opened the first time they are needed. */
+    static synchronized List<PackFile> all() {
+        if (_all == null) {
+            _all = new ArrayList<>();
+            String[] names = PACK_DIR.list((dir, name) ->
+                    name.startsWith("pack-") && name.endsWith(".idx"));
+            if (names != null) {
+                Arrays.sort(names);
+                for (String name : names) {
+                    String base = name.substring(0, name.length() - 4);
+                    _all.add(new PackFile(new File(PACK_DIR, name),
+                            new File(PACK_DIR, base + ".pack")));
+                }
+            }
+        }
+        return _all;
+    }
+
+    /** Forget the packs opened so far, so they are listed again. */
+    static synchronized void reset() {
+        _all = null;
+    }
+
+    /** Write the objects IDS, in this order, into new packs, as the delta
+     * in DELTAS for those that have one. A pack is ended once it is over
+     * SIZE_LIMIT, so it can always be mapped.
+     * @param ids the sha-1 of the objects.
+     * @param deltas the stored forms of the deltas, saved by id.
+     * @return the names of the files written. */
+    static List<String> write(List<String> ids, Map<String, byte[]> deltas) {
+        List<String> written = new ArrayList<>();
+        PACK_DIR.mkdirs();
+        try {
+            int next = 0;
+            while (next < ids.size()) {
+                List<String> packed = new ArrayList<>();
+                List<Long> offsets = new ArrayList<>();
+                Path temp = Files.createTempFile(PACK_DIR.toPath(), "tmp-",
+                        ".pack");
+                try (FileChannel out = FileChannel.open(temp,
+                        StandardOpenOption.WRITE)) {
+                    ByteBuffer header = ByteBuffer.allocate(PACK_HEADER);
+                    header.putInt(PACK_MAGIC).putInt(VERSION).putInt(0);
+                    header.flip();
+                    writeFully(out, header);
+                    while (next < ids.size()
+                            && out.position() < SIZE_LIMIT) {
+                        String id = ids.get(next);
+                        offsets.add(out.position());
+                        ObjectStore.writePacked(id, deltas.get(id), out);
+                        packed.add(id);
+                        next += 1;
+                    }
+                    offsets.add(out.position());
+                    header.clear();
+                    header.putInt(packed.size()).flip();
+                    out.write(header, Integer.BYTES * 2);
+                }
+                String name = "pack-" + packName(packed);
+                File packFile = new File(PACK_DIR, name + ".pack");
+                File idxFile = new File(PACK_DIR, name + ".idx");
+                Files.move(temp, packFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                writeIndex(idxFile, packed, offsets);
+                written.add(packFile.getName());
+                written.add(idxFile.getName());
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        reset();
+        return written;
+    }
+
+    /** Write the index IDXFILE of the objects IDS, the Ith starting at
+     * the Ith of OFFSETS, which also holds the end of the last one.
+     * @param idxFile the index to write.
+     * @param ids the sha-1 of the objects, in the order of the pack.
+     * @param offsets the offsets of the objects in the pack. */
+    private static void writeIndex(File idxFile, List<String> ids,
+                                   List<Long> offsets) throws IOException {
+        Integer[] order = new Integer[ids.size()];
+        for (int i = 0; i < order.length; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> ids.get(a).compareTo(ids.get(b)));
+        int[] fanout = new int[256];
+        for (String id : ids) {
+            fanout[Integer.parseInt(id.substring(0, 2), 16)] += 1;
+        }
+        for (int b = 1; b < fanout.length; b += 1) {
+            fanout[b] += fanout[b - 1];
+        }
+        Path temp = Files.createTempFile(PACK_DIR.toPath(), "tmp-", ".idx");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(IDX_MAGIC);
+            out.writeInt(VERSION);
+            for (int count : fanout) {
+                out.writeInt(count);
+            }
+            for (int i : order) {
+                out.write(Utils.fromHex(ids.get(i)));
+            }
+            for (int i : order) {
+                out.writeLong(offsets.get(i));
+            }
+            for (int i : order) {
+                out.writeLong(offsets.get(i + 1) - offsets.get(i));
+            }
+        }
+        Files.move(temp, idxFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Return the name of a pack holding the objects IDS, the sha-1 of
+     * their sorted ids, so the same objects always make the same pack.
+     * @param ids the sha-1 of the objects.
+     * @return the sha-1 String. */
+    private static String packName(List<String> ids) {
+        List<String> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted);
+        MessageDigest md = Utils.sha1Digest();
+        for (String id : sorted) {
+            md.update(Utils.fromHex(id));
+        }
+        return Utils.hexDigest(md);
+    }
+
+    /** Write all of BUF to OUT.
+     * @param out the channel.
+     * @param buf the bytes to write. */
+    static void writeFully(FileChannel out, ByteBuffer buf)
+        throws IOException {
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+    }
+
+    /** Return FILE mapped into memory, read only.
+     * @param file the file to map.
+     * @return the mapped buffer. */
+    private static MappedByteBuffer map(File file) {
+        try (FileChannel in = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            return in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return a stream reading the bytes of BUF.
+     * @param buf the bytes to read, from its position to its limit.
+     * @return the stream. */
+    static InputStream stream(ByteBuffer buf) {
+        return new InputStream() {
+            @Override
+            public int read() {
+                return buf.hasRemaining() ? buf.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                }
+                if (!buf.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(len, buf.remaining());
+                buf.get(b, off, n);
+                return n;
+            }
+
+            @Override
+            public long skip(long n) {
+                int k = (int) Math.max(0, Math.min(n, buf.remaining()));
+                buf.position(buf.position() + k);
+                return k;
+            }
+
+            @Override
+            public int available() {
+                return buf.remaining();
+            }
+        };
+    }
+
+    /** The first int of an index. */
+    private static final int IDX_MAGIC = 0x47494458;
+    /** The first int of a pack. */
+    private static final int PACK_MAGIC = 0x5041434b;
+    /** The version of the pack and index formats. */
+    private static final int VERSION = 1;
+    /** The size of the header of a pack: magic, version and count. */
+    private static final int PACK_HEADER = 3 * Integer.BYTES;
+    /** Where the fanout table starts in an index. */
+    private static final int FANOUT_START = 2 * Integer.BYTES;
+    /** Where the ids start in an index. */
+    private static final int ID_START = FANOUT_START + 256 * Integer.BYTES;
+    /** A pack is ended once it is this large, and larger objects are not
+     * packed at all. */
+    static final long SIZE_LIMIT = 1L << 30;
+
+    /** The index, mapped. */
+    private final MappedByteBuffer _index;
+    /** The pack, mapped. */
+    private final MappedByteBuffer _pack;
+    /** The number of objects in this pack. */
+    private final int _count;
+    /** Where the offsets start in the index. */
+    private final int _offsetStart;
+    /** Where the lengths start in the index. */
+    private final int _lengthStart;
+    /** The packs of this repository, null until first needed. */
+    private static List<PackFile> _all;
+
+}
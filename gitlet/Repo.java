@@ -1,45 +1,46 @@
 package gitlet;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.io.IOException;
-import java.io.Serializable;
-import java.util.ArrayList;
 import java.nio.file.Files;
 import java.util.Map;
+import java.util.Objects;
 import java.nio.file.Paths;
-import java.util.Queue;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 
 /** The Repo class used to monitor the whole repo file, which initializes
  * and keeps tracking files.
  *  @author Xiaoyi Zhu
  */
-public class Repo implements Serializable {
+public class Repo implements Codec.Encodable {
 
     /** Initialize a Repo, when type init in command. */
     public Repo() {
         try {
             if (!Files.exists(Paths.get(".gitlet"))) {
                 Files.createDirectories(Paths.get(".gitlet"));
-                Files.createDirectories(Paths.get(".gitlet/commits"));
-                Files.createDirectories(Paths.get(".gitlet/staging"));
+                Files.createDirectories(ObjectStore.OBJECTS_DIR.toPath());
                 Commit newCommit = Commit.init();
                 _head = newCommit.getBranchName();
-                _allCommit = new HashMap<>();
                 _allBranch = new HashMap<>();
                 _allStaging = new HashMap<>();
                 _allUntrack = new LinkedList<>();
                 _untrackedFile = new LinkedList<>();
                 _modiList = new LinkedList<>();
-                _allCommit.put(newCommit.getSha(), newCommit);
                 _allBranch.put(newCommit.getBranchName(), newCommit.getSha());
-                File newFile = new File(".gitlet/commits/"
-                        + newCommit.getSha());
-                Utils.writeObject(newFile, newCommit);
+                ObjectStore.writeCommit(newCommit);
             }
         } catch (IOException e) {
             Utils.message("A Gitlet version-control system already exists "
@@ -48,8 +49,123 @@ public class Repo implements Serializable {
         }
     }
 
+    /** Make a repo of the branch HEAD, filled in by decode().
+     * @param head the name of the current branch. */
+    private Repo(String head) {
+        _head = head;
+        _allBranch = new HashMap<>();
+        _allStaging = new HashMap<>();
+        _allUntrack = new LinkedList<>();
+        _untrackedFile = new LinkedList<>();
+        _modiList = new LinkedList<>();
+    }
+
+    /** Return a repo of an older layout made again, with the commits and
+     * the blobs it refers to in the store already.
+     * @param head the name of the current branch.
+     * @param parentId2 the second parent of a merge being made, or null.
+     * @param branches the head of each branch, saved by name.
+     * @param staging the blob ids of the staged files, saved by name.
+     * @param untrack the files staged for removal.
+     * @param untrackedFile the untracked files.
+     * @param modiList the files modified and not staged.
+     * @return the repo. */
+    static Repo migrated(String head, String parentId2,
+                         Map<String, String> branches,
+                         Map<String, String> staging, List<String> untrack,
+                         List<String> untrackedFile, List<String> modiList) {
+        Repo result = new Repo(head);
+        result._isMerge = parentId2 != null;
+        result._parentId2 = parentId2;
+        result._allBranch.putAll(branches);
+        result._allStaging.putAll(staging);
+        result._allUntrack.addAll(untrack);
+        result._untrackedFile.addAll(untrackedFile);
+        result._modiList.addAll(modiList);
+        return result;
+    }
+
+    /** Return the bytes of this repo: the current branch, the second
+     * parent of a merge being made, the branches, the staged files and the
+     * lists of files.
+     * @return the encoded repo. */
+    @Override
+    public byte[] encode() {
+        Codec.Writer out = new Codec.Writer(Codec.REPO);
+        out.string(_head);
+        out.write(_isMerge ? 1 : 0);
+        if (_isMerge) {
+            out.id(_parentId2);
+        }
+        encodeMap(out, _allBranch);
+        encodeMap(out, _allStaging);
+        encodeList(out, _allUntrack);
+        encodeList(out, _untrackedFile);
+        encodeList(out, _modiList);
+        return out.toByteArray();
+    }
+
+    /** Return the repo read from IN, written by encode().
+     * @param in the reader, past the header.
+     * @param version the version of the layout.
+     * @return the repo. */
+    static Repo decode(Codec.Reader in, int version) {
+        Repo result = new Repo(in.string());
+        result._isMerge = in.read() != 0;
+        if (result._isMerge) {
+            result._parentId2 = in.id();
+        }
+        decodeMap(in, result._allBranch);
+        decodeMap(in, result._allStaging);
+        decodeList(in, result._allUntrack);
+        decodeList(in, result._untrackedFile);
+        decodeList(in, result._modiList);
+        return result;
+    }
+
+    /** Write MAP, of ids saved by name, into OUT.
+     * @param out the writer.
+     * @param map the map. */
+    private static void encodeMap(Codec.Writer out, Map<String, String> map) {
+        out.varint(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            out.string(entry.getKey());
+            out.id(entry.getValue());
+        }
+    }
+
+    /** Read into MAP the map written by encodeMap() from IN.
+     * @param in the reader.
+     * @param map the map to fill. */
+    private static void decodeMap(Codec.Reader in, Map<String, String> map) {
+        for (long n = in.varint(); n > 0; n -= 1) {
+            String name = in.string();
+            map.put(name, in.id());
+        }
+    }
+
+    /** Write LIST into OUT.
+     * @param out the writer.
+     * @param list the strings. */
+    private static void encodeList(Codec.Writer out, List<String> list) {
+        out.varint(list.size());
+        for (String s : list) {
+            out.string(s);
+        }
+    }
+
+    /** Read into LIST the list written by encodeList() from IN.
+     * @param in the reader.
+     * @param list the list to fill. */
+    private static void decodeList(Codec.Reader in, List<String> list) {
+        for (long n = in.varint(); n > 0; n -= 1) {
+            list.add(in.string());
+        }
+    }
+
     /** Check the all the files in repo first, get the list of untrack files.
      * Then check the fine to be added, operate according to the conditions.
+     * A directory adds every file below it that is not ignored.
      * @param fileName the name of file to be added. */
     public void add(String fileName) {
         File newFile = new File(fileName);
@@ -57,24 +173,22 @@ public class Repo implements Serializable {
             Utils.message("File does not exist.");
             exit0();
         }
-        Blobs b = new Blobs(fileName);
-        Blobs bInCommit = getHead().getBlobs(fileName);
-        if (bInCommit == null) {
-            if (_allStaging.isEmpty() || !_allStaging.containsKey(fileName)) {
-                _allStaging.put(fileName, b);
-            } else {
-                _allStaging.replace(fileName, b);
+        if (newFile.isDirectory()) {
+            String dir = Paths.get(fileName).normalize().toString();
+            if (!dir.isEmpty()) {
+                dir += "/";
             }
-            File blobsFile = new File(".gitlet/staging/" + b.getsha());
-            Utils.writeObject(blobsFile, b);
-        } else {
-            if (bInCommit.getsha().equals(b.getsha())) {
-                _allStaging.remove(fileName);
-            } else {
-                _allStaging.put(fileName, b);
-                File blobsFile = new File(".gitlet/staging/" + b.getsha());
-                Utils.writeObject(blobsFile, b);
+            for (WorkTree.Record file : WorkTree.scan(dir, path -> true)) {
+                add(file.path());
             }
+            return;
+        }
+        String blobId = Index.store(fileName);
+        String bInCommit = getHead().getBlobId(fileName);
+        if (blobId.equals(bInCommit)) {
+            _allStaging.remove(fileName);
+        } else {
+            _allStaging.put(fileName, blobId);
         }
         _allUntrack.remove(fileName);
     }
@@ -97,12 +211,10 @@ public class Repo implements Serializable {
         _head = newCommit.getBranchName();
         _allStaging.clear();
         _allUntrack.clear();
-        _allCommit.put(newCommit.getSha(), newCommit);
         String newCommitId = newCommit.getSha();
         _isMerge = false;
         _allBranch.replace(newCommit.getBranchName(), newCommitId);
-        File commitFile = new File(".gitlet/commits/" + newCommitId);
-        Utils.writeObject(commitFile, newCommit);
+        ObjectStore.writeCommit(newCommit);
     }
 
     /** remove a file.
@@ -113,71 +225,109 @@ public class Repo implements Serializable {
             Utils.message("No reason to remove the file.");
             exit0();
         }
-        File inStagFolder = null;
         File rmFile = new File(fileName);
-        if (rmFile.exists()) {
-            Blobs rmBlob = new Blobs(fileName);
-            inStagFolder = new File(".gitlet/staging/" + rmBlob.getsha());
-        }
         if (getHead().tracking(fileName)) {
             rmFile.delete();
             _allUntrack.add(fileName);
         }
         if (_allStaging.containsKey(fileName)) {
             _allStaging.remove(fileName);
-            if (inStagFolder != null) {
-                inStagFolder.delete();
-            }
             updateList();
         }
     }
 
-    /**Print the log.
-     * @param head the head commit. */
-    public void log(Commit head) {
-        Commit curr = head;
-        while (curr != null) {
-            printLog(curr);
-            curr = _allCommit.get(curr.getParentId());
-        }
+    /** Print the log, the first-parent chain from the head.
+     * @param options "-n COUNT", "--since TIME" and "--until TIME". */
+    public void log(String[] options) {
+        printLog(History.firstParents(_allBranch.get(_head)), options);
     }
 
-    /** Print the global log. */
-    public void goballog() {
-        for (Map.Entry<String, Commit> entry : _allCommit.entrySet()) {
-            Commit curr = entry.getValue();
-            printLog(curr);
+    /** Print the global log, all the commits ever made, newest first.
+     * @param options "-n COUNT", "--since TIME" and "--until TIME". */
+    public void goballog(String[] options) {
+        printLog(History.newestFirst(), options);
+    }
+
+    /** Print the COMMITS within the limits of OPTIONS, reading no more of
+     * them than needed.
+     * @param commits the commits, newest first.
+     * @param options the options of the log. */
+    private void printLog(Iterator<Commit> commits, String[] options) {
+        History.Limits limits = History.Limits.parse(options);
+        if (limits == null) {
+            System.out.println("Incorrect operands.");
+            exit0();
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out,
+                StandardCharsets.UTF_8));
+        try {
+            int shown = 0;
+            while (shown < limits.count() && commits.hasNext()) {
+                Commit curr = commits.next();
+                if (limits.tooOld(curr)) {
+                    break;
+                }
+                if (!limits.tooNew(curr)) {
+                    printLog(curr, out);
+                    shown += 1;
+                }
+            }
+            out.flush();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
         }
     }
 
     /** Helper method to print log, avoiding repeat.
-     * @param curr current commit. */
-    public void printLog(Commit curr) {
-        System.out.println("===");
-        System.out.println("commit " + curr.getSha());
+     * @param curr current commit.
+     * @param out where the log goes. */
+    private void printLog(Commit curr, Writer out) throws IOException {
+        out.write("===\n");
+        out.write("commit " + curr.getSha() + "\n");
         if (curr.fromMerge()) {
-            System.out.println("Merge: " + curr.getMergeLogString());
+            out.write("Merge: " + curr.getMergeLogString() + "\n");
         }
-        System.out.println("Date: " + curr.getTime());
-        System.out.println(curr.getMessage());
-        System.out.println();
+        out.write("Date: " + curr.getTime() + "\n");
+        out.write(curr.getMessage() + "\n");
+        out.write("\n");
     }
 
-    /** Find a commit that has the given message.
+    /** Find the commits that have the given message, through the message
+     * index.
      * @param message the message from a commit. */
     public void find(String message) {
-        boolean found = false;
-        for (Map.Entry<String, Commit> entry : _allCommit.entrySet()) {
-            String key = entry.getKey();
-            Commit com = entry.getValue();
-            if (com.getMessage().equals(message)) {
-                System.out.println(key);
-                found = true;
-            }
+        printFound(MessageIndex.exact(message));
+    }
+
+    /** Find the commits whose message contains TEXT, with OPTION
+     * "--grep", or has the word TEXT in any case, with "--word".
+     * @param option "--grep" or "--word".
+     * @param text the text or word to look for. */
+    public void find(String option, String text) {
+        if (option.equals("--grep")) {
+            printFound(MessageIndex.grep(text));
+        } else if (option.equals("--word")) {
+            printFound(MessageIndex.word(text));
+        } else {
+            System.out.println("Incorrect operands.");
+            exit0();
         }
-        if (!found) {
+    }
+
+    /** Print the commit ids FOUND by find.
+     * @param found the sha-1 of the commits. */
+    private void printFound(List<String> found) {
+        if (found.isEmpty()) {
             System.out.println("Found no commit with that message.");
         }
+        for (String id : found) {
+            System.out.println(id);
+        }
+    }
+
+    /** Build the message index again from all the commits. */
+    public void reindex() {
+        MessageIndex.reindex();
     }
 
     /** Print the status. */
@@ -189,7 +339,7 @@ public class Repo implements Serializable {
         }
         printContent("Branches", content);
         content.clear();
-        for (Map.Entry<String, Blobs> entry : _allStaging.entrySet()) {
+        for (Map.Entry<String, String> entry : _allStaging.entrySet()) {
             String key = entry.getKey();
             content.add(key);
         }
@@ -234,13 +384,12 @@ public class Repo implements Serializable {
      * @param fileName name of the file needed to checkout.
      * @param com The commit used to retrieve the file. */
     public void checkout1(String fileName, Commit com) {
-        if (!com.getAllFilesList().contains(fileName)) {
+        String blobId = com.getBlobId(fileName);
+        if (blobId == null) {
             System.out.println("File does not exist in that commit.");
             exit0();
         }
-        Blobs b = com.getBlobs(fileName);
-        File f = new File(fileName);
-        Utils.writeContents(f, (Object) b.getContent());
+        Checkout.write(fileName, blobId);
         _allStaging.remove(fileName);
     }
 
@@ -273,23 +422,13 @@ public class Repo implements Serializable {
         _head = branch;
     }
 
-    /**Checkout by the given commit.
+    /**Checkout by the given commit, writing only the files that differ.
      * @param com the given commit. */
     public void checkOutCommit(Commit com) {
-        LinkedList<String> oldList = getHead().getAllFilesList();
-        LinkedList<String> newList = com.getAllFilesList();
-
-        checkUntracked(null, com, oldList, newList);
-
-        for (Object s : newList) {
-            checkout1((String) s, com);
-        }
-        for (Object s : oldList) {
-            if (!newList.contains(s)) {
-                File f = new File((String) s);
-                f.delete();
-            }
-        }
+        List<TreeDiff.Change> changes = TreeDiff.diff(getHead().getTreeId(),
+                com.getTreeId());
+        checkUntracked(changes, 0, 1);
+        Checkout.run(changes, com.getTreeId());
         _allStaging.clear();
     }
 
@@ -320,49 +459,49 @@ public class Repo implements Serializable {
     }
 
     /** This method would be called to search for (shortened) ID.
-     * and return the matched commit if there is one.
+     * and return the matched commit if there is one. A shortened ID must be
+     * the start of only one commit id.
      * @param id the shorten commit sha1 id.
      * @return the matched commit, null if not. */
     public Commit getCommitFromId(String id) {
-        if (id != null) {
-            File commitFile = new File(".gitlet/commits");
-            File[] commitArray = commitFile.listFiles();
-            if (commitArray != null && commitArray.length != 0) {
-                for (File f : commitArray) {
-                    if (f.getName().contains(id)) {
-                        return _allCommit.get(f.getName());
-                    }
-                }
-            }
+        if (id == null || id.isEmpty()) {
+            return null;
+        }
+        List<String> matches = CommitIndex.resolve(id, 2);
+        if (matches.size() > 1) {
+            System.out.println("Commit id " + id + " is ambiguous.");
+            exit0();
+        }
+        if (matches.isEmpty()) {
+            return null;
         }
-        return null;
+        return getCommit(matches.get(0));
     }
 
     /**Return the head commit.
      * @return return the head commit. */
     public Commit getHead() {
-        return _allCommit.get(_allBranch.get(_head));
+        return getCommit(_allBranch.get(_head));
     }
 
     /** Return commit by its has-1.
      * @param has1 the has-1 code of the commit.
      * @return the commit with the according has code. */
     public Commit getCommit(String has1) {
-        return _allCommit.get(has1);
+        return ObjectStore.readCommit(has1);
     }
 
-    /** Implement the merge command.
+    /** Implement the merge command. The split point, the head and the
+     * given branch are diffed together, and each file that is not the
+     * same in all three is merged by its blob ids.
      * @param branchName the name of the given branch. */
     public void merge(String branchName) {
         mergeCheck(branchName);
         Commit branchCommit = getCommitFromId(_allBranch.get(branchName));
-        Commit split = bfsFindSplit(branchCommit);
-        HashMap<String, Blobs> splitFiles = split.getFileMap();
-        LinkedList<String> hList =
-                new LinkedList<String>(getHead().getAllFilesList());
-        LinkedList<String> bList =
-                new LinkedList<String>(branchCommit.getAllFilesList());
-        checkUntracked(split, branchCommit, hList, bList);
+        Commit split = findSplit(branchCommit);
+        List<TreeDiff.Change> changes = TreeDiff.diff(split.getTreeId(),
+                getHead().getTreeId(), branchCommit.getTreeId());
+        checkUntracked(changes, 1, 2);
         if (isParent(_allBranch.get(branchName), getHead())) {
             System.out.println("Given branch is an ancestor of "
                     + "the current branch.");
@@ -373,28 +512,9 @@ public class Repo implements Serializable {
             System.out.println("Current branch fast-forwarded.");
             exit0();
         }
-        boolean conflict = mergeForLoop(splitFiles, hList, bList, branchCommit);
-        if (!hList.isEmpty() && !bList.isEmpty()) {
-            for (String fileName : hList) {
-                if (bList.contains(fileName) && !getHead().getBlobs(fileName)
-                        .getContentString().equals(branchCommit
-                                .getBlobs(fileName).getContentString())) {
-                    mergeConflict(fileName, getHead().getBlobs(fileName),
-                            branchCommit.getBlobs(fileName));
-                    conflict = true;
-                    hList.remove(fileName);
-                    bList.remove(fileName);
-                }
-            }
-        }
-        if (!bList.isEmpty()) {
-            for (String fileName : bList) {
-                if ((hList.isEmpty() || (!hList.contains(fileName)))
-                        && !splitFiles.containsKey(fileName)) {
-                    checkout1(fileName, branchCommit);
-                    _allStaging.put(fileName, branchCommit.getBlobs(fileName));
-                }
-            }
+        boolean conflict = false;
+        for (TreeDiff.Change change : changes) {
+            conflict |= mergeFile(change, branchCommit);
         }
         if (conflict) {
             System.out.println("Encountered a merge conflict.");
@@ -405,58 +525,29 @@ public class Repo implements Serializable {
                 + getHead().getBranchName() + ".");
     }
 
-    /** A big for loop used to implement merge.
-     * @param splitFiles fileMap from split point.
-     * @param hList file list from head.
-     * @param bList file list from branch.
+    /** Merge one file, whose blob ids in the split point, the head and the
+     * given branch are in CHANGE.
+     * @param change the file and its three ids.
      * @param branchCommit branch commit.
      * @return boolean whether there is a merge conflict. */
-    public boolean mergeForLoop(HashMap<String, Blobs> splitFiles,
-                                LinkedList<String> hList,
-                                LinkedList<String> bList, Commit branchCommit) {
-        boolean conflict = false;
-        for (Map.Entry<String, Blobs> entry : splitFiles.entrySet()) {
-            String fileName = entry.getKey();
-            Blobs bSplit = entry.getValue();
-            String sContent = bSplit.getContentString();
-            if (hList.contains(fileName)) {
-                Blobs hBlob = getHead().getBlobs(fileName);
-                String hContent = hBlob.getContentString();
-                if (bList.contains(fileName)) {
-                    Blobs bBlob = branchCommit.getBlobs(fileName);
-                    String bContent = bBlob.getContentString();
-                    if (sContent.equals(hContent)
-                            && !sContent.equals(bContent)) {
-                        checkout1(fileName, branchCommit);
-                        add(fileName);
-                    }
-                    if (!sContent.equals(hContent) && !sContent.equals(bContent)
-                            && !hContent.equals(bContent)) {
-                        mergeConflict(fileName, hBlob, bBlob);
-                        conflict = true;
-                    }
-                    bList.remove(fileName);
-                } else {
-                    if (sContent.equals(hContent)) {
-                        rm(fileName);
-                    } else {
-                        mergeConflict(fileName, hBlob, null);
-                        conflict = true;
-                    }
-                }
-                hList.remove(fileName);
+    public boolean mergeFile(TreeDiff.Change change, Commit branchCommit) {
+        String fileName = change.path();
+        String split = change.id(0);
+        String head = change.id(1);
+        String branch = change.id(2);
+        if (Objects.equals(head, branch) || Objects.equals(split, branch)) {
+            return false;
+        }
+        if (Objects.equals(split, head)) {
+            if (branch == null) {
+                rm(fileName);
             } else {
-                if (bList.contains(fileName)
-                        && !branchCommit.getBlobs(fileName).getContentString()
-                        .equals(sContent)) {
-                    mergeConflict(fileName, null,
-                            branchCommit.getBlobs(fileName));
-                    conflict = true;
-                    bList.remove(fileName);
-                }
+                checkout1(fileName, branchCommit);
+                _allStaging.put(fileName, branch);
             }
+            return false;
         }
-        return conflict;
+        return mergeConflict(fileName, split, head, branch);
     }
 
     /** Helper to check failure case of merge.
@@ -476,264 +567,251 @@ public class Repo implements Serializable {
         }
     }
 
-    /** Helper to find and return a split point.
+    /** Helper to find and return a split point, the best common ancestor
+     * of the head and the given branch. After a criss-cross merge there can
+     * be more than one, then the newest is used.
      * @param branchCommit branch commit.
      * @return the split point. */
-    public Commit getSplit(Commit branchCommit) {
-        HashMap<Integer, LinkedList<String>> parentMap = new HashMap<>();
-        getParentMap(1, getHead(), parentMap);
-        int minDis = Integer.MAX_VALUE;
-        String result = "";
-        for (Map.Entry<Integer, LinkedList<String>> entry
-                : parentMap.entrySet()) {
-            int dis = entry.getKey();
-            LinkedList<String> l = entry.getValue();
-            if (!l.isEmpty()) {
-                for (String s : l) {
-                    if (isParent(s, branchCommit) && dis < minDis) {
-                        minDis = dis;
-                        result = s;
-                    }
-                }
-            }
-        }
-        return getCommitFromId(result);
+    public Commit findSplit(Commit branchCommit) {
+        List<String> bases = CommitGraph.mergeBases(getHead().getSha(),
+                branchCommit.getSha());
+        return getCommit(bases.get(0));
     }
 
-    /** A recursive Helper to get a map of parent Id and distance from head.
-     * @param dis The distance from head.
-     * @param curr The current Commit to find parent.
-     * @param map the map to store the possible parents with same distance. */
-    public void getParentMap(int dis, Commit curr, HashMap<Integer,
-            LinkedList<String>> map) {
-        if (curr.getParentId() != null) {
-            if (!map.containsKey(dis)) {
-                LinkedList<String> l = new LinkedList<>();
-                l.add(curr.getParentId());
-                map.put(dis, l);
-            }
-            map.get(dis).add(curr.getParentId());
-            getParentMap(dis + 1, getCommitFromId(curr.getParentId()), map);
-        }
-        if (curr.getParentId2() != null) {
-            if (!map.containsKey(dis)) {
-                LinkedList<String> l = new LinkedList<>();
-                l.add(curr.getParentId2());
-                map.put(dis, l);
-            }
-            map.get(dis).add(curr.getParentId2());
-            getParentMap(dis + 1, getCommitFromId(curr.getParentId2()), map);
-        }
-    }
-
-
-    /** Helper to find and return a split point.
-     * @param branchCommit branch commit.
-     * @return the split point. */
-    public Commit getSplitPoint(Commit branchCommit) {
-        ArrayList<String> l = findParent();
-        while (!l.isEmpty()) {
-            if (isParent(l.get(0), branchCommit)) {
-                return getCommitFromId(l.get(0));
-            }
-            l.remove(0);
-        }
-        return null;
-    }
-
-    /** Use BSF idea to find and return a split point.
-     * @param branchCommit branch commit.
-     * @return the split point if there is one. */
-    public Commit bfsFindSplit(Commit branchCommit) {
-        Queue<String> q = new ArrayDeque<>();
-        LinkedList<String> l = new LinkedList<>();
-        q.add(getHead().getSha());
-        while (!q.isEmpty()) {
-            String thisQ = q.poll();
-            l.add(thisQ);
-            Commit curr = getCommitFromId(thisQ);
-            String parent1 = curr.getParentId();
-            String parent2 = curr.getParentId2();
-            if (parent1 != null) {
-                q.add(parent1);
-            }
-            if (parent2 != null) {
-                q.add(parent2);
-            }
-        }
-        while (!l.isEmpty()) {
-            String currId = l.remove(0);
-            if (isParent(currId, branchCommit)) {
-                return getCommitFromId(currId);
-            }
-        }
-        return null;
-    }
-
-
-
-    /** Find all the parent according to distance.
-     * @return a list with parent. */
-    public ArrayList<String> findParent() {
-        ArrayList<String> parentList = new ArrayList<>();
-        Commit curr = getHead();
-        findParentHelper(curr, parentList);
-        return parentList;
-    }
-
-    /** Find all the parent according to distance.
-     * @param com the current commit.
-     * @param l the result list. */
-    public void findParentHelper(Commit com, ArrayList<String> l) {
-        String pId1 = com.getParentId();
-        String pId2 = com.getParentId2();
-        if (pId1 != null) {
-            l.add(pId1);
-            findParentHelper(getCommitFromId(pId1), l);
-        }
-        if (pId2 != null) {
-            l.add(pId2);
-            findParentHelper(getCommitFromId(pId2), l);
-        }
-    }
-
-    /** Helper to check whether a commit is a parent of another commit.
+    /** Helper to check whether a commit is a parent of another commit,
+     * following both parents through the commit-graph.
      * @param pId The parent's ID to be checked.
      * @param child the child commit to be checked.
      * @return true if is. */
     public boolean isParent(String pId, Commit child) {
-        Commit curr = child;
-        while (curr != null) {
-            String p1 = curr.getParentId();
-            String p2 = curr.getParentId2();
-            if (p1 != null) {
-                if (p1.equals(pId)) {
-                    return true;
-                }
-            }
-            if (p2 != null) {
-                if (p2.equals(pId)) {
-                    return true;
-                }
-            }
-            curr = _allCommit.get(curr.getParentId());
-        }
-        return false;
+        return CommitGraph.isAncestor(pId, child.getSha());
     }
 
 
-    /** Handle merge conflict.
+    /** Handle a file changed on both sides: merge it line by line against
+     * the split point, write the result, with markers around the lines
+     * that conflict, and stage it. A missing file is merged as empty.
      * @param fileName name of the file to deal with.
-     * @param bHead the blob of the file from head.
-     * @param bBranch the blob of the file from given branch. */
-    public void mergeConflict(String fileName, Blobs bHead, Blobs bBranch) {
-        String content = "<<<<<<< HEAD\n";
-        if (bHead != null) {
-            content += bHead.getContentString();
-        }
-        content += "=======\n";
-        if (bBranch != null) {
-            content += bBranch.getContentString();
-        }
-        content += ">>>>>>>\n";
+     * @param split the blob id of the file at the split point.
+     * @param head the blob id of the file from head.
+     * @param branch the blob id of the file from given branch.
+     * @return whether some lines conflict. */
+    public boolean mergeConflict(String fileName, String split, String head,
+                                 String branch) {
+        boolean conflict;
         File f = new File(fileName);
-        Utils.writeContents(f, content);
+        if (f.getParentFile() != null) {
+            f.getParentFile().mkdirs();
+        }
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(f.toPath()),
+                StandardCharsets.ISO_8859_1))) {
+            conflict = Diff3.merge(Diff.lines(split), Diff.lines(head),
+                    Diff.lines(branch), out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
         add(fileName);
+        return conflict;
     }
 
-    /** Check for untracked files before reset, checkout and merge.
-     * @param splitPoint only exists when merge, otherwise null.
-     * @param branchCommit the given commit.
-     * @param hList the file list from head.
-     * @param bList the file list from the given branch. */
-    public void checkUntracked(Commit splitPoint, Commit branchCommit,
-                               LinkedList<String> hList,
-                               LinkedList<String> bList) {
-        for (String fileName : bList) {
-            if (!hList.contains(fileName)) {
-                File newFile = new File(fileName);
-                if (newFile.exists()) {
-                    String content = Utils.readContentsAsString(newFile);
-                    String contentInBranch = branchCommit.getBlobs(fileName)
-                            .getContentString();
-                    if (!content.equals(contentInBranch)) {
-                        System.out.println("There is an untracked file in the"
-                                + " way; delete it or add it first.");
-                        exit0();
-                    }
+    /** Check for untracked files before reset, checkout and merge: a file
+     * that the commit being moved to adds must not be in the way.
+     * @param changes the diff of the trees, from TreeDiff.
+     * @param from the position of the current commit in the diff.
+     * @param to the position of the commit being moved to. */
+    public void checkUntracked(List<TreeDiff.Change> changes, int from,
+                               int to) {
+        for (TreeDiff.Change change : changes) {
+            String fileName = change.path();
+            if (change.id(from) == null && change.id(to) != null
+                    && !WorkTree.isIgnored(fileName)) {
+                String blobId = Index.blobId(fileName);
+                if (blobId != null && !blobId.equals(change.id(to))) {
+                    System.out.println("There is an untracked file in the"
+                            + " way; delete it or add it first.");
+                    exit0();
                 }
             }
         }
     }
 
-    /** update untraked file when needed. */
+    /** update untraked file when needed, from one scan of the working
+     * directory. Only the files that are tracked or staged are hashed, on
+     * the scanner's threads, and only if their stat data changed. */
     public void updateList() {
-        String dir = System.getProperty("user.dir");
-        File file = new File(dir);
-        File[] allFileList = file.listFiles(File::isFile);
-        LinkedList<String> fileList = new LinkedList<>();
         _untrackedFile.clear();
         _modiList.clear();
-        for (File f : allFileList) {
-            String fileName = f.getName();
-            fileList.add(fileName);
-            if (f.isFile() && !f.isHidden() && !getHead().tracking(fileName)
-                    && !_allStaging.containsKey(fileName)) {
-                _untrackedFile.add(fileName);
+        HashMap<String, String> tracked = getHead().getFileMap();
+        HashSet<String> removed = new HashSet<>(_allUntrack);
+        HashSet<String> present = new HashSet<>();
+        List<WorkTree.Record> files = WorkTree.scan(fileName ->
+                _allStaging.containsKey(fileName)
+                        || tracked.containsKey(fileName));
+        for (WorkTree.Record file : files) {
+            String fileName = file.path();
+            present.add(fileName);
+            String expected = _allStaging.get(fileName);
+            if (expected == null) {
+                expected = tracked.get(fileName);
             }
-            String content = Utils.readContentsAsString(f);
-            if (getHead().tracking(fileName)
-                    && !_allStaging.containsKey(fileName)) {
-                if (!getHead().getBlobs(fileName).getContentString()
-                        .equals(content)) {
-                    String s = fileName + " (modified)";
-                    _modiList.add(s);
+            if (expected == null) {
+                if (!new File(fileName).getName().startsWith(".")) {
+                    _untrackedFile.add(fileName);
                 }
+            } else if (!expected.equals(file.blobId())) {
+                _modiList.add(fileName + " (modified)");
+            }
+        }
+        TreeSet<String> expected = new TreeSet<>(tracked.keySet());
+        expected.addAll(_allStaging.keySet());
+        for (String fileName : expected) {
+            if (!present.contains(fileName) && !removed.contains(fileName)) {
+                _modiList.add(fileName + " (deleted)");
             }
-            if (_allStaging.containsKey(fileName)) {
-                if (!_allStaging.get(fileName).getContentString()
-                        .equals(content)) {
-                    String s = fileName + " (modified)";
-                    _modiList.add(s);
+        }
+    }
+
+    /** Print the diff of the files, in the unified format. With no
+     * argument, from the head to the working directory; with "--staged",
+     * from the head to the staging area; with one commit id, from that
+     * commit to the working directory; with two, from the first commit to
+     * the second.
+     * @param first "--staged", a commit id, or null.
+     * @param second a commit id, or null. */
+    public void diff(String first, String second) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out,
+                StandardCharsets.ISO_8859_1));
+        UnifiedDiff diff = new UnifiedDiff(out);
+        try {
+            if ("--staged".equals(first) && second == null) {
+                diffStaged(diff);
+            } else if (first == null) {
+                diffWorking(getHead(), diff);
+            } else if (second == null) {
+                diffWorking(diffCommit(first), diff);
+            } else {
+                Commit from = diffCommit(first);
+                Commit to = diffCommit(second);
+                for (TreeDiff.Change change : TreeDiff.diff(from.getTreeId(),
+                        to.getTreeId())) {
+                    diff.blobs(change.path(), change.id(0), change.id(1));
                 }
             }
+            out.flush();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
         }
-        for (Map.Entry<String, Blobs> entry : _allStaging.entrySet()) {
-            String fileName = entry.getKey();
-            if (!fileList.contains(fileName)
-                    && !_allUntrack.contains(fileName)) {
-                String s = fileName + " (deleted)";
-                _modiList.add(s);
+    }
+
+    /** Return the commit with the id ID for diff, exiting if there is none.
+     * @param id the id of the commit, maybe shortened.
+     * @return the commit. */
+    private Commit diffCommit(String id) {
+        Commit com = getCommitFromId(id);
+        if (com == null) {
+            System.out.println("No commit with that id exists.");
+            exit0();
+        }
+        return com;
+    }
+
+    /** Write the diff from the head to the staging area into DIFF.
+     * @param diff the diff. */
+    private void diffStaged(UnifiedDiff diff) throws IOException {
+        Commit head = getHead();
+        TreeSet<String> paths = new TreeSet<>(_allStaging.keySet());
+        paths.addAll(_allUntrack);
+        for (String fileName : paths) {
+            String oldId = head.getBlobId(fileName);
+            String newId = _allStaging.get(fileName);
+            if (!Objects.equals(oldId, newId)) {
+                diff.blobs(fileName, oldId, newId);
             }
         }
-        LinkedList<String> trackedList = getHead().getAllFilesList();
-        for (String fileName : trackedList) {
-            if (!fileList.contains(fileName)
-                    && !_allUntrack.contains(fileName)) {
-                String s = fileName + " (deleted)";
-                _modiList.add(s);
+    }
+
+    /** Write the diff from the commit COM to the working directory into
+     * DIFF, for the files COM tracks and the staged ones. Only the files
+     * whose blob ids differ, found from a scan of the working directory,
+     * are read.
+     * @param com the commit.
+     * @param diff the diff. */
+    private void diffWorking(Commit com, UnifiedDiff diff)
+        throws IOException {
+        TreeMap<String, String> expected = new TreeMap<>(com.getFileMap());
+        for (String fileName : _allStaging.keySet()) {
+            expected.putIfAbsent(fileName, null);
+        }
+        HashMap<String, WorkTree.Record> files = new HashMap<>();
+        for (WorkTree.Record file
+                : WorkTree.scan(expected::containsKey)) {
+            files.put(file.path(), file);
+        }
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            String fileName = entry.getKey();
+            WorkTree.Record file = files.get(fileName);
+            String newId = file == null ? null : file.blobId();
+            if (!Objects.equals(entry.getValue(), newId)) {
+                diff.file(fileName, entry.getValue(), file != null);
             }
         }
+    }
+
+    /** Write the objects of this repository stored by Java serialization
+     * again in the binary format of Codec. The repo itself is written in
+     * it when the command saves it; one of the oldest layout is made again
+     * before, when it is read (see Legacy). */
+    public void migrate() {
+        ObjectStore.migrate();
+    }
 
+    /** Move the objects of this repository into packs. */
+    public void repack() {
+        ObjectStore.repack();
     }
 
-    /** Exit with 0, avoid typing. */
+    /** Print the setting NAME of this repository, or set it to VALUE.
+     * @param name the name of the setting.
+     * @param value the new value, null to print the current one. */
+    public void config(String name, String value) {
+        if (!name.equals(Config.COMPRESSION)) {
+            System.out.println("No setting with that name exists.");
+            exit0();
+        }
+        if (value == null) {
+            System.out.println(Config.getInt(Config.COMPRESSION,
+                    Config.DEFAULT_COMPRESSION));
+            return;
+        }
+        if (!value.matches("[0-9]")) {
+            System.out.println("Compression level must be from 0 to 9.");
+            exit0();
+        }
+        Config.set(name, value);
+    }
+
+    /** Stop the command, avoid typing. Main exits with 0, and a daemon
+     * goes on to the next command. */
     public void exit0() {
-        System.exit(0);
+        throw new GitletException();
     }
 
+    /** The version of the fields for Java serialization, as it was when
+     * the repo was stored that way, so it is still read. */
+    private static final long serialVersionUID = 2361253771616883764L;
+
     /** String storing the branch name of the Head. */
     private String _head;
     /** Second parentId of commit if merge. */
     private String _parentId2;
     /** Flag to indicate a merge. */
     private boolean _isMerge;
-    /** hash-map stores all the commits with its sha-1 code. */
-    private HashMap<String, Commit> _allCommit;
     /** hash-map stores all the branch's head with its sha-1 code. */
     private HashMap<String, String> _allBranch;
-    /** hash-map stores all the files in staged with its file name. */
-    private HashMap<String, Blobs> _allStaging;
+    /** hash-map stores the blob id of all the files in staged with its file
+     * name, the blobs themselves are in the object store. */
+    private HashMap<String, String> _allStaging;
     /** List contains all the untrack files. */
     private LinkedList<String> _allUntrack;
     /** List contains all the untrack files slightly differenct from the one
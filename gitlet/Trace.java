@@ -0,0 +1,255 @@
+package gitlet;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** What a command spends its time on: the time it takes to load the repo,
+ *  to execute the command and to save the repo, and how many objects it
+ *  reads and writes, how many bytes of files it hashes and how many files
+ *  of the working directory and the index it stats. Every command counts
+ *  these, which costs about nothing. "java gitlet.Main --trace COMMAND..."
+ *  prints them as one line of JSON on stderr after the command, and each
+ *  command and each phase is also a JDK Flight Recorder event,
+ *  gitlet.Command and gitlet.Phase, so a recording started with
+ *  -XX:StartFlightRecording shows them without anything else attached.
+ *  @author Xiaoyi Zhu
+ */
+class Trace {
+
+    /** The option in front of a command to trace it. */
+    static final String OPTION = "--trace";
+
+    /** The phases of a command. */
+    enum Phase {
+        /** Reading the repo. */
+        LOAD,
+        /** Running the command. */
+        EXECUTE,
+        /** Writing the repo and the index. */
+        SAVE
+    }
+
+    /** Start counting for the command ARGS, from zero.
+     * @param args the command and its operands. */
+    static void start(String[] args) {
+        _command = String.join(" ", args);
+        _start = System.nanoTime();
+        for (int i = 0; i < _phases.length; i += 1) {
+            _phases[i] = 0;
+        }
+        OBJECTS_READ.reset();
+        OBJECTS_WRITTEN.reset();
+        BYTES_HASHED.reset();
+        FILES_STATTED.reset();
+    }
+
+    /** Return the time now, to pass to end() at the end of a phase.
+     * @return the time in nanoseconds. */
+    static long begin() {
+        return System.nanoTime();
+    }
+
+    /** Count the time since START as spent in the phase PHASE.
+     * @param phase the phase.
+     * @param start what begin() returned at the start of it. */
+    static void end(Phase phase, long start) {
+        long elapsed = System.nanoTime() - start;
+        _phases[phase.ordinal()] += elapsed;
+        if (FlightRecorder.isInitialized()) {
+            PhaseEvent.emit(phase, elapsed);
+        }
+    }
+
+    /** Finish counting for the command started last, and print the counts
+     * on stderr if PRINT.
+     * @param print whether the command was traced.
+     * @param stopped whether the command stopped early. */
+    static void finish(boolean print, boolean stopped) {
+        long total = System.nanoTime() - _start;
+        if (FlightRecorder.isInitialized()) {
+            CommandEvent.emit(stopped);
+        }
+        if (!print) {
+            return;
+        }
+        StringBuilder json = new StringBuilder("{\"command\": ");
+        quote(json, _command);
+        json.append(", \"stopped\": ").append(stopped).append(", \"ms\": {");
+        for (Phase phase : Phase.values()) {
+            json.append('"').append(phase.name().toLowerCase(Locale.ROOT))
+                    .append("\": ").append(millis(_phases[phase.ordinal()]))
+                    .append(", ");
+        }
+        json.append("\"total\": ").append(millis(total))
+                .append("}, \"objects_read\": ").append(OBJECTS_READ.sum())
+                .append(", \"objects_written\": ")
+                .append(OBJECTS_WRITTEN.sum())
+                .append(", \"bytes_hashed\": ").append(BYTES_HASHED.sum())
+                .append(", \"files_statted\": ").append(FILES_STATTED.sum())
+                .append('}');
+        System.err.println(json);
+    }
+
+    /** Count an object read from the store. */
+    static void objectRead() {
+        OBJECTS_READ.increment();
+    }
+
+    /** Count an object written into the store. */
+    static void objectWritten() {
+        OBJECTS_WRITTEN.increment();
+    }
+
+    /** Count BYTES bytes hashed.
+     * @param bytes the number of bytes. */
+    static void hashed(long bytes) {
+        BYTES_HASHED.add(bytes);
+    }
+
+    /** Count a file whose stat data was read. */
+    static void statted() {
+        FILES_STATTED.increment();
+    }
+
+    /** Return NANOS as milliseconds, to the microsecond.
+     * @param nanos a time in nanoseconds.
+     * @return the milliseconds. */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /** Append S to JSON as a JSON string.
+     * @param json the JSON written so far.
+     * @param s the string. */
+    private static void quote(StringBuilder json, String s) {
+        json.append('"');
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < ' ') {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /** The event of a whole command. The events are only made when the
+     * flight recorder runs, since loading the first of them starts its
+     * machinery, which would double the time of a short command. */
+    @Name("gitlet.Command")
+    @Label("Gitlet Command")
+    @Category("Gitlet")
+    @Description("A gitlet command, with the time of its phases and its "
+            + "counts")
+    static class CommandEvent extends Event {
+        /** The command and its operands. */
+        @Label("Command")
+        String command;
+        /** Whether it stopped early. */
+        @Label("Stopped")
+        boolean stopped;
+        /** The time spent loading the repo. */
+        @Label("Load")
+        @Timespan
+        long load;
+        /** The time spent running the command. */
+        @Label("Execute")
+        @Timespan
+        long execute;
+        /** The time spent saving the repo. */
+        @Label("Save")
+        @Timespan
+        long save;
+        /** The objects read from the store. */
+        @Label("Objects Read")
+        long objectsRead;
+        /** The objects written into the store. */
+        @Label("Objects Written")
+        long objectsWritten;
+        /** The bytes hashed. */
+        @Label("Bytes Hashed")
+        @DataAmount
+        long bytesHashed;
+        /** The files whose stat data was read. */
+        @Label("Files Statted")
+        long filesStatted;
+
+        /** Record the event of the command started last, if it is
+         * enabled.
+         * @param stopped whether the command stopped early. */
+        static void emit(boolean stopped) {
+            CommandEvent event = new CommandEvent();
+            if (event.shouldCommit()) {
+                event.command = _command;
+                event.stopped = stopped;
+                event.load = _phases[Phase.LOAD.ordinal()];
+                event.execute = _phases[Phase.EXECUTE.ordinal()];
+                event.save = _phases[Phase.SAVE.ordinal()];
+                event.objectsRead = OBJECTS_READ.sum();
+                event.objectsWritten = OBJECTS_WRITTEN.sum();
+                event.bytesHashed = BYTES_HASHED.sum();
+                event.filesStatted = FILES_STATTED.sum();
+                event.commit();
+            }
+        }
+    }
+
+    /** The event of one phase of a command. */
+    @Name("gitlet.Phase")
+    @Label("Gitlet Phase")
+    @Category("Gitlet")
+    @Description("The load, execute or save phase of a gitlet command")
+    static class PhaseEvent extends Event {
+        /** The command and its operands. */
+        @Label("Command")
+        String command;
+        /** The name of the phase. */
+        @Label("Phase")
+        String phase;
+        /** The time spent in it. */
+        @Label("Elapsed")
+        @Timespan
+        long elapsed;
+
+        /** Record the event of the phase PHASE of the command started
+         * last, if it is enabled.
+         * @param phase the phase.
+         * @param elapsed the time spent in it, in nanoseconds. */
+        static void emit(Phase phase, long elapsed) {
+            PhaseEvent event = new PhaseEvent();
+            if (event.shouldCommit()) {
+                event.command = _command;
+                event.phase = phase.name().toLowerCase(Locale.ROOT);
+                event.elapsed = elapsed;
+                event.commit();
+            }
+        }
+    }
+
+    /** The number of objects read from the store. */
+    private static final LongAdder OBJECTS_READ = new LongAdder();
+    /** The number of objects written into the store. */
+    private static final LongAdder OBJECTS_WRITTEN = new LongAdder();
+    /** The number of bytes hashed. */
+    private static final LongAdder BYTES_HASHED = new LongAdder();
+    /** The number of files whose stat data was read. */
+    private static final LongAdder FILES_STATTED = new LongAdder();
+
+    /** The command being counted. */
+    private static String _command = "";
+    /** The time it started, in nanoseconds. */
+    private static long _start = System.nanoTime();
+    /** The time spent in each phase, in nanoseconds. */
+    private static long[] _phases = new long[Phase.values().length];
+
+}
@@ -0,0 +1,214 @@
+package gitlet;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Tree class for Gitlet, the object to hold one directory of a commit.
+ *  A tree maps each name in the directory either to the id of a blob, or,
+ *  for a sub-directory, to the id of another tree. Trees are immutable and
+ *  stored by their sha-1, so a commit only writes new trees along the paths
+ *  it changes and shares every other subtree with its parent.
+ *  @author Xiaoyi Zhu
+ */
+public class Tree implements Codec.Encodable {
+
+    /** Make a tree holding ENTRIES.
+     * @param entries blob and subtree ids, saved by name. */
+    Tree(TreeMap<String, String> entries) {
+        _entries = entries;
+        MessageDigest md = Utils.sha1Digest();
+        Utils.update(md, "tree " + _entries.size() + "\n");
+        for (Map.Entry<String, String> entry : _entries.entrySet()) {
+            Utils.update(md, entry.getKey());
+            md.update((byte) 0);
+            Utils.update(md, entry.getValue());
+        }
+        _sha = Utils.hexDigest(md);
+    }
+
+    /** Make a tree holding ENTRIES, whose sha-1 is SHA.
+     * @param entries blob and subtree ids, saved by name.
+     * @param sha the sha-1 of the tree. */
+    private Tree(TreeMap<String, String> entries, String sha) {
+        _entries = entries;
+        _sha = sha;
+    }
+
+    /** Return the bytes of this tree: its id, then the number of its
+     * entries and the name and id of each, in order.
+     * @return the encoded tree. */
+    @Override
+    public byte[] encode() {
+        Codec.Writer out = new Codec.Writer(Codec.TREE);
+        out.id(_sha);
+        out.varint(_entries.size());
+        for (Map.Entry<String, String> entry : _entries.entrySet()) {
+            out.string(entry.getKey());
+            out.id(entry.getValue());
+        }
+        return out.toByteArray();
+    }
+
+    /** Return the tree read from IN, written by encode().
+     * @param in the reader, past the header.
+     * @param version the version of the layout.
+     * @return the tree. */
+    static Tree decode(Codec.Reader in, int version) {
+        String sha = in.id();
+        TreeMap<String, String> entries = new TreeMap<>();
+        for (long n = in.varint(); n > 0; n -= 1) {
+            String name = in.string();
+            entries.put(name, in.id());
+        }
+        return new Tree(entries, sha);
+    }
+
+    /** Write the empty tree into the store.
+     * @return its id. */
+    static String init() {
+        Tree empty = new Tree(new TreeMap<>());
+        ObjectStore.writeObject(empty.getSha(), empty);
+        return empty.getSha();
+    }
+
+    /** Return the sha-1 of this tree.
+     * @return the sha-1 String. */
+    public String getSha() {
+        return _sha;
+    }
+
+    /** Return the entries of this tree, sub-directories are saved by their
+     * name followed by a '/'. The order of the entries is the order of the
+     * full paths below them.
+     * @return the entries of this tree. */
+    public TreeMap<String, String> getEntries() {
+        return _entries;
+    }
+
+    /** Return the id of the blob at PATH in the tree TREEID.
+     * @param treeId the id of the root tree.
+     * @param path the '/' separated path of the file.
+     * @return the blob id, null if there is no such file. */
+    static String lookup(String treeId, String path) {
+        Tree tree = ObjectStore.readTree(treeId);
+        int start = 0;
+        int slash = path.indexOf('/');
+        while (tree != null && slash >= 0) {
+            String dir = path.substring(start, slash + 1);
+            tree = ObjectStore.readTree(tree._entries.get(dir));
+            start = slash + 1;
+            slash = path.indexOf('/', start);
+        }
+        if (tree == null) {
+            return null;
+        }
+        return tree._entries.get(path.substring(start));
+    }
+
+    /** Put the blob id of every file below the tree TREEID into RESULT,
+     * saved by its full path, in sorted order of the paths.
+     * @param treeId the id of the tree.
+     * @param prefix the path of the tree, "" for the root.
+     * @param result the map to fill. */
+    static void flatten(String treeId, String prefix,
+                        Map<String, String> result) {
+        Tree tree = ObjectStore.readTree(treeId);
+        if (tree == null) {
+            return;
+        }
+        for (Map.Entry<String, String> entry : tree._entries.entrySet()) {
+            String name = entry.getKey();
+            if (name.endsWith("/")) {
+                flatten(entry.getValue(), prefix + name, result);
+            } else {
+                result.put(prefix + name, entry.getValue());
+            }
+        }
+    }
+
+    /** Make the tree of TREEID with the files of STAGED put in and the
+     * files of REMOVED taken out, and write it into the store. Only the
+     * trees on the paths of the changed files are made again, every other
+     * subtree is shared with TREEID.
+     * @param treeId the id of the old tree, null for an empty one.
+     * @param staged blob ids of the staged files, saved by path.
+     * @param removed paths of the removed files.
+     * @return the id of the new tree. */
+    static String update(String treeId, Map<String, String> staged,
+                         Collection<String> removed) {
+        if (staged.isEmpty() && removed.isEmpty() && treeId != null) {
+            return treeId;
+        }
+        return updateTree(treeId, staged, removed).getSha();
+    }
+
+    /** Helper of update() that makes and writes the new tree.
+     * @param treeId the id of the old tree, null for an empty one.
+     * @param staged blob ids of the staged files, saved by path.
+     * @param removed paths of the removed files.
+     * @return the new tree. */
+    private static Tree updateTree(String treeId, Map<String, String> staged,
+                                   Collection<String> removed) {
+        Tree old = ObjectStore.readTree(treeId);
+        TreeMap<String, String> entries = new TreeMap<>();
+        if (old != null) {
+            entries.putAll(old._entries);
+        }
+        HashMap<String, HashMap<String, String>> subStaged = new HashMap<>();
+        HashMap<String, List<String>> subRemoved = new HashMap<>();
+        for (Map.Entry<String, String> entry : staged.entrySet()) {
+            String path = entry.getKey();
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                entries.put(path, entry.getValue());
+            } else {
+                subStaged.computeIfAbsent(path.substring(0, slash + 1),
+                    k -> new HashMap<>()).put(path.substring(slash + 1),
+                        entry.getValue());
+            }
+        }
+        for (String path : removed) {
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                entries.remove(path);
+            } else {
+                subRemoved.computeIfAbsent(path.substring(0, slash + 1),
+                    k -> new ArrayList<>()).add(path.substring(slash + 1));
+            }
+        }
+        HashMap<String, String> noneStaged = new HashMap<>();
+        List<String> noneRemoved = new ArrayList<>();
+        for (String dir : subStaged.keySet()) {
+            subRemoved.putIfAbsent(dir, noneRemoved);
+        }
+        for (Map.Entry<String, List<String>> entry : subRemoved.entrySet()) {
+            String dir = entry.getKey();
+            Tree sub = updateTree(entries.get(dir),
+                    subStaged.getOrDefault(dir, noneStaged), entry.getValue());
+            if (sub._entries.isEmpty()) {
+                entries.remove(dir);
+            } else {
+                entries.put(dir, sub.getSha());
+            }
+        }
+        Tree result = new Tree(entries);
+        ObjectStore.writeObject(result.getSha(), result);
+        return result;
+    }
+
+    /** The version of the fields for Java serialization, as it was when
+     * trees were stored that way, so they are still read. */
+    private static final long serialVersionUID = -51712133812304463L;
+
+    /** Blob and subtree ids of this tree, saved by name, sub-directories
+     * end with a '/'. */
+    private TreeMap<String, String> _entries;
+    /** The String holds the sha-1 of this tree. */
+    private String _sha;
+
+}
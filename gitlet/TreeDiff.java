@@ -0,0 +1,126 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/** The diff of two or more trees. The entries of a tree are sorted in the
+ *  order of the full paths below them, so the trees are walked together
+ *  like the merge step of a merge sort: at each step the smallest name
+ *  left in any of them is taken from all the trees holding it. A path
+ *  with the same blob id in every tree is skipped, and so is a directory
+ *  with the same tree id in every tree, without reading it, so the walk
+ *  takes time linear in the entries of the directories that differ.
+ *  Nothing is ever compared but ids.
+ *  @author Xiaoyi Zhu
+ */
+class TreeDiff {
+
+    /** Return the files that are not the same in all of the trees TREEIDS.
+     * @param treeIds the ids of the root trees, null for an empty one.
+     * @return the changes, sorted by path. */
+    static List<Change> diff(String... treeIds) {
+        List<Change> result = new ArrayList<>();
+        walk("", treeIds, result);
+        return result;
+    }
+
+    /** Put the changes between the trees TREEIDS of the directory PREFIX
+     * into RESULT.
+     * @param prefix the path of the directory, "" or ending with a '/'.
+     * @param treeIds the ids of its trees, null where it is missing.
+     * @param result the list to fill. */
+    private static void walk(String prefix, String[] treeIds,
+                             List<Change> result) {
+        if (allEqual(treeIds)) {
+            return;
+        }
+        int n = treeIds.length;
+        List<Iterator<Map.Entry<String, String>>> iters = new ArrayList<>();
+        List<Map.Entry<String, String>> heads = new ArrayList<>();
+        for (String id : treeIds) {
+            Tree tree = ObjectStore.readTree(id);
+            Iterator<Map.Entry<String, String>> iter = tree == null
+                    ? null : tree.getEntries().entrySet().iterator();
+            iters.add(iter);
+            heads.add(iter != null && iter.hasNext() ? iter.next() : null);
+        }
+        while (true) {
+            String name = null;
+            for (Map.Entry<String, String> head : heads) {
+                if (head != null && (name == null
+                        || head.getKey().compareTo(name) < 0)) {
+                    name = head.getKey();
+                }
+            }
+            if (name == null) {
+                return;
+            }
+            String[] ids = new String[n];
+            for (int i = 0; i < n; i += 1) {
+                Map.Entry<String, String> head = heads.get(i);
+                if (head != null && head.getKey().equals(name)) {
+                    ids[i] = head.getValue();
+                    Iterator<Map.Entry<String, String>> iter = iters.get(i);
+                    heads.set(i, iter.hasNext() ? iter.next() : null);
+                }
+            }
+            if (name.endsWith("/")) {
+                walk(prefix + name, ids, result);
+            } else if (!allEqual(ids)) {
+                result.add(new Change(prefix + name, ids));
+            }
+        }
+    }
+
+    /** Return whether all of IDS are the same, or all null.
+     * @param ids the ids.
+     * @return true if they are. */
+    private static boolean allEqual(String[] ids) {
+        for (String id : ids) {
+            if (!Objects.equals(id, ids[0])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** A file that is not the same in all the trees. */
+    static class Change {
+
+        /** The file at PATH holds the blobs IDS in the trees.
+         * @param path the path of the file.
+         * @param ids its blob id in each tree, null where it is missing. */
+        Change(String path, String[] ids) {
+            _path = path;
+            _ids = ids;
+        }
+
+        /** Return the path of the file.
+         * @return the '/' separated path. */
+        String path() {
+            return _path;
+        }
+
+        /** Return the blob id of the file in the Ith tree.
+         * @param i the position of the tree in the diff.
+         * @return the sha-1 of the blob, null if the file is not there. */
+        String id(int i) {
+            return _ids[i];
+        }
+
+        @Override
+        public String toString() {
+            return _path + " " + Arrays.toString(_ids);
+        }
+
+        /** The path of the file. */
+        private final String _path;
+        /** The blob id of the file in each tree. */
+        private final String[] _ids;
+    }
+
+}
@@ -0,0 +1,181 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Writes the diff of files in the unified format, with CONTEXT lines of
+ *  context around each change. Each file is read once into its lines and
+ *  diffed with Diff, and the hunks are written to the output as they are
+ *  found. The callers only hand in files whose blob ids differ.
+ *  @author Xiaoyi Zhu
+ */
+class UnifiedDiff {
+
+    /** A diff written into OUT.
+     * @param out where the diff goes, as ISO-8859-1. */
+    UnifiedDiff(Writer out) {
+        _out = out;
+    }
+
+    /** Write the diff of the file PATH from the blob OLDID to the blob
+     * NEWID.
+     * @param path the path of the file.
+     * @param oldId the sha-1 of the old blob, null if there was no file.
+     * @param newId the sha-1 of the new blob, null if there is no file. */
+    void blobs(String path, String oldId, String newId) throws IOException {
+        write(path, oldId != null, newId != null, Diff.lines(oldId),
+                Diff.lines(newId));
+    }
+
+    /** Write the diff of the file PATH from the blob OLDID to the file in
+     * the working directory.
+     * @param path the path of the file.
+     * @param oldId the sha-1 of the old blob, null if there was no file.
+     * @param exists whether the file is in the working directory. */
+    void file(String path, String oldId, boolean exists) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (exists) {
+            try (InputStream in = Files.newInputStream(Paths.get(path))) {
+                lines = Diff.lines(in);
+            }
+        }
+        write(path, oldId != null, exists, Diff.lines(oldId), lines);
+    }
+
+    /** Write the diff of the file PATH from the lines A to the lines B.
+     * @param path the path of the file.
+     * @param hasOld whether there was a file.
+     * @param hasNew whether there is a file.
+     * @param a the old lines.
+     * @param b the new lines. */
+    private void write(String path, boolean hasOld, boolean hasNew,
+                       List<String> a, List<String> b) throws IOException {
+        _out.write("diff --gitlet a/" + path + " b/" + path + "\n");
+        if (!hasOld) {
+            _out.write("new file\n");
+        } else if (!hasNew) {
+            _out.write("deleted file\n");
+        }
+        if (isBinary(a) || isBinary(b)) {
+            _out.write("Binary files differ\n");
+            return;
+        }
+        _out.write("--- " + (hasOld ? "a/" + path : "/dev/null") + "\n");
+        _out.write("+++ " + (hasNew ? "b/" + path : "/dev/null") + "\n");
+        int[][] ids = Diff.intern(a, b);
+        int[] match = Diff.match(ids[0], ids[1]);
+        List<int[]> ops = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            if (i < a.size() && match[i] < 0) {
+                ops.add(new int[] {DELETE, i, j});
+                i += 1;
+            } else if (j < b.size() && (i == a.size() || j < match[i])) {
+                ops.add(new int[] {INSERT, i, j});
+                j += 1;
+            } else {
+                ops.add(new int[] {SAME, i, j});
+                i += 1;
+                j += 1;
+            }
+        }
+        int k = 0;
+        while (k < ops.size()) {
+            if (ops.get(k)[0] == SAME) {
+                k += 1;
+                continue;
+            }
+            int start = Math.max(0, k - CONTEXT);
+            int end = k;
+            int same = 0;
+            for (int n = k; n < ops.size() && same <= 2 * CONTEXT; n += 1) {
+                if (ops.get(n)[0] == SAME) {
+                    same += 1;
+                } else {
+                    same = 0;
+                    end = n;
+                }
+            }
+            end = Math.min(ops.size(), end + 1 + CONTEXT);
+            hunk(ops.subList(start, end), a, b);
+            k = end;
+        }
+    }
+
+    /** Write the hunk of the edits OPS.
+     * @param ops the edits: kind, line in A and line in B.
+     * @param a the old lines.
+     * @param b the new lines. */
+    private void hunk(List<int[]> ops, List<String> a, List<String> b)
+        throws IOException {
+        int aCount = 0;
+        int bCount = 0;
+        for (int[] op : ops) {
+            aCount += op[0] == INSERT ? 0 : 1;
+            bCount += op[0] == DELETE ? 0 : 1;
+        }
+        _out.write("@@ -" + range(ops.get(0)[1], aCount) + " +"
+                + range(ops.get(0)[2], bCount) + " @@\n");
+        for (int[] op : ops) {
+            if (op[0] == INSERT) {
+                line('+', b.get(op[2]));
+            } else {
+                line(op[0] == SAME ? ' ' : '-', a.get(op[1]));
+            }
+        }
+    }
+
+    /** Return the range of a hunk starting at line START, COUNT lines
+     * long, as the unified format writes it.
+     * @param start the first line, from 0.
+     * @param count the number of lines.
+     * @return the range. */
+    private static String range(int start, int count) {
+        if (count == 1) {
+            return Integer.toString(start + 1);
+        }
+        return (count == 0 ? start : start + 1) + "," + count;
+    }
+
+    /** Write LINE after PREFIX.
+     * @param prefix ' ', '-' or '+'.
+     * @param line the line, with its '\n' if it has one. */
+    private void line(char prefix, String line) throws IOException {
+        _out.write(prefix);
+        _out.write(line);
+        if (!line.endsWith("\n")) {
+            _out.write("\n\\ No newline at end of file\n");
+        }
+    }
+
+    /** Return whether LINES look like binary data, holding a NUL.
+     * @param lines the lines.
+     * @return true if they do. */
+    private static boolean isBinary(List<String> lines) {
+        for (String line : lines) {
+            if (line.indexOf('\0') >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The kind of a line in both files. */
+    private static final int SAME = 0;
+    /** The kind of a line only in the old file. */
+    private static final int DELETE = 1;
+    /** The kind of a line only in the new file. */
+    private static final int INSERT = 2;
+    /** The number of lines of context around a change. */
+    private static final int CONTEXT = 3;
+
+    /** Where the diff goes. */
+    private final Writer _out;
+
+}
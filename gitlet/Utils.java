@@ -59,6 +59,50 @@ class Utils {
         return sha1(vals.toArray(new Object[vals.size()]));
     }
 
+    /** Returns a new SHA-1 MessageDigest, for hashing data that is fed to
+     *  it piece by piece. */
+    static MessageDigest sha1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+
+    /** Feeds the UTF-8 bytes of VAL to MD. */
+    static void update(MessageDigest md, String val) {
+        md.update(val.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Returns the hexadecimal numeral of the digest of MD. */
+    static String hexDigest(MessageDigest md) {
+        return toHex(md.digest());
+    }
+
+    /** Returns the hexadecimal numeral of the bytes of ID. */
+    static String toHex(byte[] id) {
+        char[] result = new char[2 * id.length];
+        for (int i = 0; i < id.length; i += 1) {
+            result[2 * i] = HEX_DIGITS[(id[i] >> 4) & 0xf];
+            result[2 * i + 1] = HEX_DIGITS[id[i] & 0xf];
+        }
+        return new String(result);
+    }
+
+    /** Returns the bytes of the hexadecimal numeral HEX, which must have an
+     *  even number of digits. */
+    static byte[] fromHex(String hex) {
+        byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = (byte) ((Character.digit(hex.charAt(2 * i), 16) << 4)
+                    | Character.digit(hex.charAt(2 * i + 1), 16));
+        }
+        return result;
+    }
+
+    /** The digits of a hexadecimal numeral. */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     /* FILE DELETION */
 
     /** Deletes FILE if it exists and is not a directory.  Returns true
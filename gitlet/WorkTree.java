@@ -0,0 +1,306 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/** The scanner of the working directory. It walks every directory below
+ *  a starting one on a fork-join pool, one task per directory and per
+ *  batch of files, skipping .gitlet and the paths matched by the patterns
+ *  of .gitletignore. Each file found gives a Record of its path, its stat
+ *  data and, when asked for, its blob id from the Index.
+ *  The patterns of .gitletignore are globs, one a line, blank lines and
+ *  lines starting with '#' are skipped. A pattern without a '/' is matched
+ *  against the name of every file and directory, one with a '/' against
+ *  the whole path, and one ending with '/' only matches directories.
+ *  @author Xiaoyi Zhu
+ */
+class WorkTree {
+
+    /** The file holding the patterns of the ignored paths. */
+    static final File IGNORE_FILE = new File(".gitletignore");
+
+    /** Return the records of all the files below the working directory.
+     * @param hash tells the paths of the files whose blob ids are filled
+     * in by the scan, the others are computed when asked for.
+     * @return the records, sorted by path. */
+    static List<Record> scan(Predicate<String> hash) {
+        return scan("", hash);
+    }
+
+    /** Return the records of all the files below the directory DIR.
+     * @param dir the path of the directory, "" for the working directory,
+     * otherwise ending with a '/'.
+     * @param hash tells the paths of the files whose blob ids are filled
+     * in by the scan, the others are computed when asked for.
+     * @return the records, sorted by path. */
+    static List<Record> scan(String dir, Predicate<String> hash) {
+        List<Record> result = ForkJoinPool.commonPool().invoke(
+                new DirTask(dir, hash, ignored()));
+        result.sort(Comparator.comparing(Record::path));
+        return result;
+    }
+
+    /** Return whether the file or directory at PATH is ignored.
+     * @param path the path, ending with a '/' for a directory.
+     * @return true if it is. */
+    static boolean isIgnored(String path) {
+        String name = path.endsWith("/")
+                ? path.substring(0, path.length() - 1) : path;
+        if (name.equals(".gitlet") || name.startsWith(".gitlet/")) {
+            return true;
+        }
+        int slash = name.lastIndexOf('/');
+        while (slash >= 0) {
+            if (ignored().matches(name.substring(0, slash + 1))) {
+                return true;
+            }
+            slash = name.lastIndexOf('/', slash - 1);
+        }
+        return ignored().matches(path);
+    }
+
+    /** Return the patterns of .gitletignore, read the first time.
+     * @return the patterns. */
+    private static synchronized Ignore ignored() {
+        if (_ignored == null) {
+            _ignored = new Ignore();
+        }
+        return _ignored;
+    }
+
+    /** Forget the patterns of .gitletignore, so they are read again. */
+    static synchronized void reset() {
+        _ignored = null;
+    }
+
+    /** The path, stat data and blob id of one file. */
+    static class Record {
+
+        /** A record of the file at PATH with stat data ATTRS and blob ID.
+         * @param path the path of the file.
+         * @param attrs its stat data.
+         * @param id the sha-1 of its content, null if not computed. */
+        Record(String path, BasicFileAttributes attrs, String id) {
+            _path = path;
+            _attrs = attrs;
+            _id = id;
+        }
+
+        /** Return the path of the file.
+         * @return the '/' separated path. */
+        String path() {
+            return _path;
+        }
+
+        /** Return the size of the file.
+         * @return the size in bytes. */
+        long size() {
+            return _attrs.size();
+        }
+
+        /** Return the blob id of the file, asking the Index if it was not
+         * computed by the scan.
+         * @return the sha-1 of its content as a blob. */
+        String blobId() {
+            if (_id == null) {
+                _id = Index.blobId(_path, _attrs);
+            }
+            return _id;
+        }
+
+        /** The path of the file. */
+        private final String _path;
+        /** The stat data of the file. */
+        private final BasicFileAttributes _attrs;
+        /** The blob id of the file, null until computed. */
+        private String _id;
+    }
+
+    /** The task scanning one directory. */
+    private static class DirTask extends RecursiveTask<List<Record>> {
+
+        /** A task for the directory DIR.
+         * @param dir the path of the directory, "" or ending with a '/'.
+         * @param hash tells the files whose blob ids are filled in.
+         * @param ignore the ignored patterns. */
+        DirTask(String dir, Predicate<String> hash, Ignore ignore) {
+            _dir = dir;
+            _hash = hash;
+            _ignore = ignore;
+        }
+
+        @Override
+        protected List<Record> compute() {
+            List<RecursiveTask<List<Record>>> tasks = new ArrayList<>();
+            List<Record> files = new ArrayList<>();
+            List<Record> batch = new ArrayList<>();
+            Path dir = Paths.get(_dir.isEmpty() ? "." : _dir);
+            try (DirectoryStream<Path> entries =
+                         Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    String path = _dir + entry.getFileName();
+                    BasicFileAttributes attrs = Files.readAttributes(entry,
+                            BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    Trace.statted();
+                    if (attrs.isDirectory()) {
+                        if (!skip(path + "/")) {
+                            tasks.add(new DirTask(path + "/", _hash,
+                                    _ignore));
+                        }
+                    } else if (attrs.isRegularFile() && !skip(path)) {
+                        Record file = new Record(path, attrs, null);
+                        files.add(file);
+                        if (_hash.test(path)) {
+                            batch.add(file);
+                        }
+                        if (batch.size() == BATCH) {
+                            tasks.add(new HashTask(batch));
+                            batch = new ArrayList<>();
+                        }
+                    }
+                }
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            if (!batch.isEmpty()) {
+                tasks.add(new HashTask(batch));
+            }
+            invokeAll(tasks);
+            for (RecursiveTask<List<Record>> task : tasks) {
+                if (task instanceof DirTask) {
+                    files.addAll(task.join());
+                }
+            }
+            return files;
+        }
+
+        /** Return whether PATH is ignored, checking only its own name
+         * against the patterns, since its parents were already checked.
+         * @param path the path, ending with a '/' for a directory.
+         * @return true if it is. */
+        private boolean skip(String path) {
+            return (_dir.isEmpty() && path.equals(".gitlet/"))
+                    || _ignore.matches(path);
+        }
+
+        /** The path of the directory. */
+        private final String _dir;
+        /** Tells the files whose blob ids are filled in. */
+        private final Predicate<String> _hash;
+        /** The ignored patterns. */
+        private final Ignore _ignore;
+    }
+
+    /** The task filling in the blob ids of a batch of files. */
+    private static class HashTask extends RecursiveTask<List<Record>> {
+
+        /** A task for the records FILES.
+         * @param files the records. */
+        HashTask(List<Record> files) {
+            _files = files;
+        }
+
+        @Override
+        protected List<Record> compute() {
+            for (Record file : _files) {
+                file.blobId();
+            }
+            return _files;
+        }
+
+        /** The records to fill in. */
+        private final List<Record> _files;
+    }
+
+    /** The patterns of .gitletignore. */
+    private static class Ignore {
+
+        /** Read the patterns of IGNORE_FILE, if there is one. */
+        Ignore() {
+            if (!IGNORE_FILE.isFile()) {
+                return;
+            }
+            String[] lines = Utils.readContentsAsString(IGNORE_FILE)
+                    .split("\r?\n");
+            for (String line : lines) {
+                String pattern = line.trim();
+                if (pattern.isEmpty() || pattern.startsWith("#")) {
+                    continue;
+                }
+                boolean dirOnly = pattern.endsWith("/");
+                if (dirOnly) {
+                    pattern = pattern.substring(0, pattern.length() - 1);
+                }
+                boolean byName = !pattern.contains("/");
+                if (pattern.startsWith("/")) {
+                    pattern = pattern.substring(1);
+                }
+                PathMatcher matcher = FileSystems.getDefault()
+                        .getPathMatcher("glob:" + pattern);
+                if (dirOnly) {
+                    (byName ? _dirNames : _dirPaths).add(matcher);
+                } else {
+                    (byName ? _names : _paths).add(matcher);
+                }
+            }
+        }
+
+        /** Return whether PATH matches a pattern.
+         * @param path the path, ending with a '/' for a directory.
+         * @return true if it does. */
+        boolean matches(String path) {
+            boolean isDir = path.endsWith("/");
+            Path full = Paths.get(isDir
+                    ? path.substring(0, path.length() - 1) : path);
+            Path name = full.getFileName();
+            return matchAny(_names, name) || matchAny(_paths, full)
+                    || (isDir && (matchAny(_dirNames, name)
+                    || matchAny(_dirPaths, full)));
+        }
+
+        /** Return whether PATH matches one of MATCHERS.
+         * @param matchers the patterns.
+         * @param path the path.
+         * @return true if it does. */
+        private static boolean matchAny(List<PathMatcher> matchers,
+                                        Path path) {
+            for (PathMatcher matcher : matchers) {
+                if (matcher.matches(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Patterns matched against the names of files and directories. */
+        private final List<PathMatcher> _names = new ArrayList<>();
+        /** Patterns matched against whole paths. */
+        private final List<PathMatcher> _paths = new ArrayList<>();
+        /** Patterns matched against the names of directories only. */
+        private final List<PathMatcher> _dirNames = new ArrayList<>();
+        /** Patterns matched against the paths of directories only. */
+        private final List<PathMatcher> _dirPaths = new ArrayList<>();
+    }
+
+    /** The number of files hashed by one task. */
+    private static final int BATCH = 64;
+
+    /** The patterns of .gitletignore, null until first needed. */
+    private static Ignore _ignored;
+
+}